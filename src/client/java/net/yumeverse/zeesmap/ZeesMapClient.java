@@ -3,21 +3,32 @@ package net.yumeverse.zeesmap;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
 import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.minecraft.client.option.KeyBinding;
 import net.minecraft.client.util.InputUtil;
 import net.minecraft.client.MinecraftClient;
+import net.yumeverse.zeesmap.config.ZeesMapConfig;
+import net.yumeverse.zeesmap.render.MapCacheManager;
+import net.yumeverse.zeesmap.render.MapFrameComposer;
 import net.yumeverse.zeesmap.render.MinimapRenderer;
 import net.yumeverse.zeesmap.gui.WaypointManagerScreen;
+import net.yumeverse.zeesmap.replay.ReplayRecorder;
 import net.yumeverse.zeesmap.storage.WaypointStorage;
 
 public class ZeesMapClient implements ClientModInitializer {
 	public static KeyBinding OPEN_WAYPOINT_SCREEN;
+	public static KeyBinding CYCLE_ZOOM;
+	public static KeyBinding TOGGLE_REPLAY_RECORDING;
 
 	@Override
 	public void onInitializeClient() {
 		// Initialize waypoint storage (client-only)
 		WaypointStorage.load();
+		ZeesMapConfig.load();
+
+		// Track chunk snapshots and drop map caches on join, disconnect and dimension change
+		MapCacheManager.register();
 
 		OPEN_WAYPOINT_SCREEN = KeyBindingHelper.registerKeyBinding(new KeyBinding(
 				"key.zeesmap.open",
@@ -26,6 +37,21 @@ public class ZeesMapClient implements ClientModInitializer {
 				"category.zeesmap"
 		));
 
+		CYCLE_ZOOM = KeyBindingHelper.registerKeyBinding(new KeyBinding(
+				"key.zeesmap.zoom",
+				InputUtil.Type.KEYSYM,
+				InputUtil.GLFW_KEY_Z,
+				"category.zeesmap"
+		));
+
+		// Unbound by default; only needed when capturing perf regression scenarios
+		TOGGLE_REPLAY_RECORDING = KeyBindingHelper.registerKeyBinding(new KeyBinding(
+				"key.zeesmap.record_replay",
+				InputUtil.Type.KEYSYM,
+				InputUtil.UNKNOWN_KEY.getCode(),
+				"category.zeesmap"
+		));
+
 		HudRenderCallback.EVENT.register((drawContext, renderTickCounter) -> {
 			MinimapRenderer.render(drawContext, renderTickCounter.getTickDelta(true));
 		});
@@ -35,6 +61,25 @@ public class ZeesMapClient implements ClientModInitializer {
 			while (OPEN_WAYPOINT_SCREEN.wasPressed()) {
 				MinecraftClient.getInstance().setScreen(new WaypointManagerScreen());
 			}
+			while (CYCLE_ZOOM.wasPressed()) {
+				ZeesMapConfig config = ZeesMapConfig.get();
+				config.zoomLevel = (config.zoomLevel + 1) % (MapFrameComposer.MAX_ZOOM + 1);
+				ZeesMapConfig.save();
+			}
+			while (TOGGLE_REPLAY_RECORDING.wasPressed()) {
+				ReplayRecorder.toggle(client);
+			}
+			// Map updates run here at tick rate; the HUD callback above only draws
+			MinimapRenderer.tick(client);
+
+			// After the map update, so each recorded tick holds the state that update saw
+			ReplayRecorder.tick(client);
 		});
+
+		// Finish any replay recording so the file isn't cut off mid-tick
+		ClientLifecycleEvents.CLIENT_STOPPING.register(ReplayRecorder::stop);
+
+		// Let a save queued by an import finish before the JVM exits
+		ClientLifecycleEvents.CLIENT_STOPPING.register(client -> WaypointStorage.flush());
 	}
 }
\ No newline at end of file
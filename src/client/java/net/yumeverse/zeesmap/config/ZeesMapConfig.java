@@ -0,0 +1,76 @@
+package net.yumeverse.zeesmap.config;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import net.fabricmc.loader.api.FabricLoader;
+import net.yumeverse.zeesmap.render.MapFrameComposer;
+
+import java.io.*;
+import java.nio.file.*;
+
+public class ZeesMapConfig {
+    private static ZeesMapConfig instance = new ZeesMapConfig();
+    private static Path path;
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    // Memory budget in MB shared by all minimap caches
+    public int cacheBudgetMb = 32;
+
+    // Minimap zoom, 0 = 1:1 up to MapFrameComposer.MAX_ZOOM = 1:8 blocks per pixel
+    public int zoomLevel = 0;
+
+    // How often the minimap image is recomposed, 1-20 per second; drawing is interpolated in between
+    public int updatesPerSecond = 10;
+
+    // Time per tick spent rebuilding out-of-date tiles; at least one tile is always rebuilt
+    public int tileBuildBudgetMicros = 2000;
+
+    public static ZeesMapConfig get() {
+        return instance;
+    }
+
+    // Initialize path when first accessed
+    private static Path getPath() {
+        if (path == null) {
+            path = FabricLoader.getInstance()
+                    .getConfigDir()
+                    .resolve("zeesmap_config.json");
+        }
+        return path;
+    }
+
+    public static void load() {
+        try {
+            Path configPath = getPath();
+            if (Files.exists(configPath)) {
+                try (Reader r = Files.newBufferedReader(configPath)) {
+                    ZeesMapConfig loaded = gson.fromJson(r, ZeesMapConfig.class);
+                    if (loaded != null) {
+                        instance = loaded;
+                    }
+                    instance.zoomLevel = Math.max(0, Math.min(MapFrameComposer.MAX_ZOOM, instance.zoomLevel));
+                    instance.updatesPerSecond = Math.max(1, Math.min(20, instance.updatesPerSecond));
+                    instance.tileBuildBudgetMicros = Math.max(0, instance.tileBuildBudgetMicros);
+                }
+            }
+            // Write back so new options show up in the file with their defaults
+            save();
+        } catch (IOException e) {
+            System.err.println("Failed to load config: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    public static void save() {
+        try {
+            Path configPath = getPath();
+            Files.createDirectories(configPath.getParent());
+            try (Writer w = Files.newBufferedWriter(configPath)) {
+                gson.toJson(instance, w);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to save config: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package net.yumeverse.zeesmap.debug;
+
+// Counters for the minimap pipeline, shown on the debug HUD and read by the replay harness
+public class MapInstrumentation {
+    // Per compose, loaded chunks in the frame whose tile was up to date or not
+    public static long tileCacheHits = 0;
+    public static long tileCacheMisses = 0;
+    public static long tilesBuilt = 0;
+    public static long tilesEvicted = 0;
+
+    // Current cache footprint, updated by MapCacheManager
+    public static int cachedTiles = 0;
+    public static int snapshots = 0;
+    public static long cacheBytes = 0;
+    public static long cacheBudgetBytes = 0;
+
+    // Out-of-date tiles still waiting for MinimapScheduler
+    public static int pendingTiles = 0;
+
+    public static double hitRate() {
+        long lookups = tileCacheHits + tileCacheMisses;
+        return lookups == 0 ? 0.0 : (double) tileCacheHits / lookups;
+    }
+
+    public static void reset() {
+        tileCacheHits = 0;
+        tileCacheMisses = 0;
+        tilesBuilt = 0;
+        tilesEvicted = 0;
+    }
+
+    public static String describe() {
+        return String.format("Map cache: %d tiles, %d snapshots, %.1f/%.0f MB, hit %.1f%%, %d pending",
+                cachedTiles,
+                snapshots,
+                cacheBytes / (1024.0 * 1024.0),
+                cacheBudgetBytes / (1024.0 * 1024.0),
+                hitRate() * 100.0,
+                pendingTiles);
+    }
+}
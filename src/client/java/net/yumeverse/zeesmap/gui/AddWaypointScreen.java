@@ -57,7 +57,7 @@ public class AddWaypointScreen extends Screen {
                 String name = nameField.getText().trim();
                 if (name.isEmpty()) name = "Waypoint";
 
-                WaypointStorage.waypoints.add(new WaypointStorage.Waypoint(
+                WaypointStorage.add(new WaypointStorage.Waypoint(
                         name,
                         Double.parseDouble(xField.getText()),
                         Double.parseDouble(yField.getText()),
@@ -6,8 +6,18 @@ import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.gui.widget.ButtonWidget;
 import net.minecraft.text.Text;
 import net.yumeverse.zeesmap.storage.WaypointStorage;
+import net.yumeverse.zeesmap.storage.WaypointTransfer;
 
 public class WaypointManagerScreen extends Screen {
+    private static final int ROW_HEIGHT = 25;
+
+    private int page = 0;
+    private int pageCount = 1;
+    private int pageLabelY;
+    private int statusY;
+    private Text status;
+    private static boolean importing = false;
+
     public WaypointManagerScreen() {
         super(Text.of("Zee's Map Waypoints"));
     }
@@ -17,7 +27,14 @@ public class WaypointManagerScreen extends Screen {
         int centerX = this.width / 2;
         int y = 40;
 
-        for (int i = 0; i < WaypointStorage.waypoints.size(); i++) {
+        // Only build buttons for one page so large imported sets stay cheap to show
+        int perPage = Math.max(1, (this.height - y - 110) / ROW_HEIGHT);
+        pageCount = Math.max(1, (WaypointStorage.waypoints.size() + perPage - 1) / perPage);
+        page = Math.min(page, pageCount - 1);
+        int start = page * perPage;
+        int end = Math.min(WaypointStorage.waypoints.size(), start + perPage);
+
+        for (int i = start; i < end; i++) {
             var wp = WaypointStorage.waypoints.get(i);
             final int index = i;
 
@@ -35,29 +52,83 @@ public class WaypointManagerScreen extends Screen {
 
             // Delete button
             addDrawableChild(ButtonWidget.builder(Text.of("X"), btn -> {
-                WaypointStorage.waypoints.remove(index);
+                WaypointStorage.remove(index);
                 WaypointStorage.save();
                 this.clearAndInit(); // Refresh the screen
             }).dimensions(centerX + 60, y, 20, 20).build());
 
-            y += 25;
+            y += ROW_HEIGHT;
+        }
+
+        // Page navigation
+        if (pageCount > 1) {
+            addDrawableChild(ButtonWidget.builder(Text.of("<"), btn -> {
+                page = Math.max(0, page - 1);
+                this.clearAndInit();
+            }).dimensions(centerX - 150, y, 20, 20).build()).active = page > 0;
+
+            addDrawableChild(ButtonWidget.builder(Text.of(">"), btn -> {
+                page = Math.min(pageCount - 1, page + 1);
+                this.clearAndInit();
+            }).dimensions(centerX + 60, y, 20, 20).build()).active = page < pageCount - 1;
+
+            pageLabelY = y + 6;
+            y += ROW_HEIGHT;
         }
 
         // Add waypoint button
         addDrawableChild(ButtonWidget.builder(Text.of("Add Waypoint"), btn -> {
             MinecraftClient.getInstance().setScreen(new AddWaypointScreen(this));
-        }).dimensions(centerX - 75, y + 10, 150, 20).build());
+        }).dimensions(centerX - 155, y + 10, 100, 20).build());
+
+        // Import from other map mods or shared files in config/zeesmap_import
+        addDrawableChild(ButtonWidget.builder(Text.of("Import"), btn -> {
+            importing = true;
+            btn.active = false;
+            status = Text.of("Importing from config/zeesmap_import...");
+            WaypointTransfer.importAll().thenAccept(result -> {
+                importing = false;
+                String summary = "Imported " + result.added + " waypoints from " + result.files + " files ("
+                        + result.duplicates + " duplicates, " + result.skipped + " skipped, "
+                        + result.otherDimension + " in other dimensions)";
+                if (result.failed > 0) {
+                    summary += ", " + result.failed + " files failed, see log";
+                }
+                status = Text.of(summary);
+                if (client != null && client.currentScreen == this) {
+                    this.clearAndInit();
+                }
+            });
+        }).dimensions(centerX - 50, y + 10, 100, 20).build()).active = !importing;
+
+        // Export to config/zeesmap_export as JSON and CSV
+        addDrawableChild(ButtonWidget.builder(Text.of("Export"), btn -> {
+            status = Text.of("Exporting...");
+            WaypointTransfer.exportAll().whenComplete((dir, error) -> MinecraftClient.getInstance().execute(() -> {
+                status = Text.of(error == null
+                        ? "Exported " + WaypointStorage.waypoints.size() + " waypoints to config/zeesmap_export"
+                        : "Export failed: " + error.getMessage());
+            }));
+        }).dimensions(centerX + 55, y + 10, 100, 20).build());
 
         // Close button
         addDrawableChild(ButtonWidget.builder(Text.of("Close"), btn -> {
             this.close();
         }).dimensions(centerX - 50, y + 40, 100, 20).build());
+
+        statusY = y + 70;
     }
 
     @Override
     public void render(DrawContext context, int mouseX, int mouseY, float delta) {
         this.renderBackground(context, mouseX, mouseY, delta);
         context.drawCenteredTextWithShadow(textRenderer, this.title, this.width / 2, 15, 0xFFFFFF);
+        if (pageCount > 1) {
+            context.drawCenteredTextWithShadow(textRenderer, "Page " + (page + 1) + " / " + pageCount, this.width / 2 - 35, pageLabelY, 0xFFFFFF);
+        }
+        if (status != null) {
+            context.drawCenteredTextWithShadow(textRenderer, status, this.width / 2, statusY, 0xFFFFFF);
+        }
         super.render(context, mouseX, mouseY, delta);
     }
 
@@ -0,0 +1,19 @@
+package net.yumeverse.zeesmap.mixin.client;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.yumeverse.zeesmap.render.MapCacheManager;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ClientWorld.class)
+public class ClientWorldMixin {
+	// Single and multi-block update packets both end up here; the chunk snapshot is re-captured at the end of the tick
+	@Inject(at = @At("TAIL"), method = "handleBlockUpdate")
+	private void onBlockUpdate(BlockPos pos, BlockState state, int flags, CallbackInfo info) {
+		MapCacheManager.markDirty(pos);
+	}
+}
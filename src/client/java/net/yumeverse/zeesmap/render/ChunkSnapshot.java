@@ -0,0 +1,168 @@
+package net.yumeverse.zeesmap.render;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.biome.source.BiomeCoords;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Immutable copy of what the map needs from a chunk: surface heights, the top block of every
+// column as a small palette, and the biome temperature of each 4x4 biome cell. Captured on the
+// client thread when a chunk loads or changes; map code only ever reads snapshots, never live
+// chunks, so it is safe to process them off-thread while the world keeps updating.
+public final class ChunkSnapshot {
+    public final int chunkX;
+    public final int chunkZ;
+
+    // Increases with every capture so tiles know when they are out of date
+    public final long version;
+
+    private final short[] heights;
+    private final Block[] palette;
+    private final byte[] blocks; // Palette index per column; 256 columns never need more than a byte
+    private final float[] temperatures;
+
+    private ChunkSnapshot(int chunkX, int chunkZ, long version, short[] heights, Block[] palette, byte[] blocks, float[] temperatures) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.version = version;
+        this.heights = heights;
+        this.palette = palette;
+        this.blocks = blocks;
+        this.temperatures = temperatures;
+    }
+
+    public static ChunkSnapshot capture(WorldChunk chunk, long version) {
+        ChunkPos pos = chunk.getPos();
+        short[] heights = new short[MapTile.AREA];
+        Block[] columns = new Block[MapTile.AREA];
+        BlockPos.Mutable mutablePos = new BlockPos.Mutable();
+
+        for (int z = 0; z < MapTile.SIZE; z++) {
+            for (int x = 0; x < MapTile.SIZE; x++) {
+                int i = MapTile.index(x, z);
+
+                // The client keeps WORLD_SURFACE up to date, so no need to scan down the column
+                int topY = chunk.sampleHeightmap(Heightmap.Type.WORLD_SURFACE, x, z);
+                if (topY < chunk.getBottomY()) {
+                    heights[i] = MapTile.NO_HEIGHT;
+                    columns[i] = Blocks.VOID_AIR;
+                } else {
+                    heights[i] = (short) topY;
+                    columns[i] = chunk.getBlockState(mutablePos.set(pos.getStartX() + x, topY, pos.getStartZ() + z)).getBlock();
+                }
+            }
+        }
+
+        // One temperature per 4x4 biome cell, taken at the surface of the cell's corner column
+        float[] temperatures = new float[16];
+        for (int cellZ = 0; cellZ < 4; cellZ++) {
+            for (int cellX = 0; cellX < 4; cellX++) {
+                short height = heights[MapTile.index(cellX * 4, cellZ * 4)];
+                int y = height == MapTile.NO_HEIGHT ? chunk.getBottomY() : height;
+
+                temperatures[cellZ * 4 + cellX] = chunk.getBiomeForNoiseGen(
+                        BiomeCoords.fromBlock(pos.getStartX()) + cellX,
+                        BiomeCoords.fromBlock(y),
+                        BiomeCoords.fromBlock(pos.getStartZ()) + cellZ).value().getTemperature();
+            }
+        }
+
+        return fromColumns(pos.x, pos.z, version, columns, heights, temperatures);
+    }
+
+    // Builds a snapshot from the top block of every column, indexed like MapTile. Also used by
+    // the replay scenarios, which generate terrain without a world.
+    public static ChunkSnapshot fromColumns(int chunkX, int chunkZ, long version, Block[] columns, short[] heights, float[] temperatures) {
+        byte[] blocks = new byte[MapTile.AREA];
+        List<Block> palette = new ArrayList<>();
+
+        for (int i = 0; i < MapTile.AREA; i++) {
+            int paletteIndex = palette.indexOf(columns[i]);
+            if (paletteIndex < 0) {
+                paletteIndex = palette.size();
+                palette.add(columns[i]);
+            }
+            blocks[i] = (byte) paletteIndex;
+        }
+
+        return new ChunkSnapshot(chunkX, chunkZ, version, heights.clone(), palette.toArray(new Block[0]), blocks, temperatures.clone());
+    }
+
+    // Serialized form used by replay recordings; blocks are stored by registry id
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(chunkX);
+        out.writeInt(chunkZ);
+        out.writeLong(version);
+        out.writeShort(palette.length); // 256 entries don't fit in a byte
+        for (Block block : palette) {
+            out.writeUTF(Registries.BLOCK.getId(block).toString());
+        }
+        out.write(blocks);
+        for (short height : heights) out.writeShort(height);
+        for (float temperature : temperatures) out.writeFloat(temperature);
+    }
+
+    // Block ids this game doesn't know, such as modded blocks, come back as air
+    public static ChunkSnapshot read(DataInputStream in) throws IOException {
+        int chunkX = in.readInt();
+        int chunkZ = in.readInt();
+        long version = in.readLong();
+        Block[] palette = new Block[in.readUnsignedShort()];
+        for (int p = 0; p < palette.length; p++) {
+            palette[p] = Registries.BLOCK.get(Identifier.of(in.readUTF()));
+        }
+        byte[] blocks = new byte[MapTile.AREA];
+        in.readFully(blocks);
+        short[] heights = new short[MapTile.AREA];
+        for (int i = 0; i < heights.length; i++) heights[i] = in.readShort();
+        float[] temperatures = new float[16];
+        for (int i = 0; i < temperatures.length; i++) temperatures[i] = in.readFloat();
+
+        return new ChunkSnapshot(chunkX, chunkZ, version, heights, palette, blocks, temperatures);
+    }
+
+    // Whether both snapshots would build the same tile, whatever their versions
+    public boolean sameSurface(ChunkSnapshot other) {
+        if (!Arrays.equals(heights, other.heights) || !Arrays.equals(temperatures, other.temperatures)) return false;
+        for (int i = 0; i < MapTile.AREA; i++) {
+            if (palette[blocks[i] & 0xFF] != other.palette[other.blocks[i] & 0xFF]) return false;
+        }
+        return true;
+    }
+
+    public short height(int index) {
+        return heights[index];
+    }
+
+    public int paletteSize() {
+        return palette.length;
+    }
+
+    public Block paletteBlock(int paletteIndex) {
+        return palette[paletteIndex];
+    }
+
+    public int paletteIndex(int index) {
+        return blocks[index] & 0xFF;
+    }
+
+    public float temperature(int x, int z) {
+        return temperatures[(z >> 2) * 4 + (x >> 2)];
+    }
+
+    public long estimatedBytes() {
+        return (16 + MapTile.AREA * 2L) + (16 + MapTile.AREA) + (16 + palette.length * 4L) + (16 + 16 * 4L) + 96;
+    }
+}
@@ -0,0 +1,347 @@
+package net.yumeverse.zeesmap.render;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientChunkEvents;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.chunk.WorldChunk;
+import net.yumeverse.zeesmap.config.ZeesMapConfig;
+import net.yumeverse.zeesmap.debug.MapInstrumentation;
+import net.yumeverse.zeesmap.replay.ReplayRecorder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Owns every minimap cache so they are dropped together when the world or dimension changes
+// and stay within the configured memory budget
+public class MapCacheManager {
+    // Per-chunk color and height tiles, keyed by MapTile.key; primitive keys avoid boxing on every lookup
+    private static final Long2ObjectOpenHashMap<MapTile> TILE_CACHE = new Long2ObjectOpenHashMap<>();
+    private static long cacheBytes = 0;
+
+    // Snapshots of the loaded chunks, read by tile builders; synchronized so they may run off-thread
+    private static final Long2ObjectMap<ChunkSnapshot> SNAPSHOTS = Long2ObjectMaps.synchronize(new Long2ObjectOpenHashMap<>());
+    private static long snapshotBytes = 0;
+    private static long nextVersion = 0;
+
+    // Tiles stitched into one image per region for composing; rebuilt from tiles whenever dropped
+    private static final Long2ObjectOpenHashMap<MapRegion> REGIONS = new Long2ObjectOpenHashMap<>();
+    private static long regionBytes = 0;
+
+    // Loaded chunks whose tile is missing or older than their snapshot
+    private static final LongOpenHashSet STALE_TILES = new LongOpenHashSet();
+    private static final LongSet STALE_TILES_VIEW = LongSets.unmodifiable(STALE_TILES);
+
+    // Chunks with block updates this tick, re-captured once at the end of the tick
+    private static final LongOpenHashSet DIRTY_CHUNKS = new LongOpenHashSet();
+
+    // Evict down to this fraction of the budget so we don't evict again on the next tick
+    private static final double EVICTION_TARGET = 0.9;
+
+    // Share of the budget tiles may always use, however much the snapshots take
+    private static final double MIN_TILE_SHARE = 0.25;
+
+    // Footprint and view after the last pass that couldn't get under the target; the same pass
+    // isn't repeated until one of them changes
+    private static long stuckBytes = -1;
+    private static long stuckChunk;
+    private static int stuckZoom;
+
+    // World the caches currently belong to; a new ClientWorld means a new server or dimension
+    private static ClientWorld currentWorld;
+
+    public static void register() {
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> clear());
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> clear());
+
+        ClientChunkEvents.CHUNK_LOAD.register((world, chunk) -> {
+            checkWorld(world);
+            captureSnapshot(chunk);
+        });
+        ClientChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> {
+            // The tile stays cached so the map still shows where the player has been
+            removeSnapshot(chunk.getPos().x, chunk.getPos().z);
+            ReplayRecorder.onSnapshotRemoved(chunk.getPos().x, chunk.getPos().z);
+        });
+
+        ClientTickEvents.END_CLIENT_TICK.register(client -> {
+            checkWorld(client.world);
+            if (client.world != null) {
+                recaptureDirtyChunks(client.world);
+            }
+            if (client.player != null) {
+                enforceBudget(client.player.getX(), client.player.getZ(), ZeesMapConfig.get().zoomLevel);
+            }
+        });
+    }
+
+    // Chunk load events can arrive before the first tick in a new world, so both paths check
+    private static void checkWorld(ClientWorld world) {
+        if (world != currentWorld) {
+            clear();
+            currentWorld = world;
+        }
+    }
+
+    // Updates under the captured surface, such as mining, redstone or water underground, can't
+    // change the map. One block of slack covers the surface block itself being replaced.
+    public static void markDirty(BlockPos pos) {
+        long key = MapTile.key(pos.getX() >> 4, pos.getZ() >> 4);
+        ChunkSnapshot snapshot = SNAPSHOTS.get(key);
+        if (snapshot != null) {
+            short height = snapshot.height(MapTile.index(pos.getX() & 15, pos.getZ() & 15));
+            if (height != MapTile.NO_HEIGHT && pos.getY() < height - 1) return;
+        }
+        DIRTY_CHUNKS.add(key);
+    }
+
+    private static void recaptureDirtyChunks(ClientWorld world) {
+        for (LongIterator it = DIRTY_CHUNKS.iterator(); it.hasNext(); ) {
+            long key = it.nextLong();
+            WorldChunk chunk = world.getChunkManager().getWorldChunk((int) key, (int) (key >> 32));
+            if (chunk != null) {
+                captureSnapshot(chunk);
+            }
+        }
+        DIRTY_CHUNKS.clear();
+    }
+
+    private static void captureSnapshot(WorldChunk chunk) {
+        ChunkSnapshot snapshot = ChunkSnapshot.capture(chunk, nextVersion);
+
+        // Keep the old version when the surface didn't change, so its tile isn't rebuilt
+        ChunkSnapshot previous = SNAPSHOTS.get(MapTile.key(snapshot.chunkX, snapshot.chunkZ));
+        if (previous != null && previous.sameSurface(snapshot)) return;
+
+        nextVersion++;
+        putSnapshot(snapshot);
+        ReplayRecorder.onSnapshotCaptured(snapshot);
+    }
+
+    // Also called by the replay harness, which feeds recorded snapshots instead of live chunks
+    public static void putSnapshot(ChunkSnapshot snapshot) {
+        ChunkSnapshot previous = SNAPSHOTS.put(MapTile.key(snapshot.chunkX, snapshot.chunkZ), snapshot);
+        if (previous != null) {
+            snapshotBytes -= previous.estimatedBytes();
+        }
+        snapshotBytes += snapshot.estimatedBytes();
+
+        long key = MapTile.key(snapshot.chunkX, snapshot.chunkZ);
+        MapTile tile = TILE_CACHE.get(key);
+        if (tile == null || tile.version < snapshot.version) {
+            STALE_TILES.add(key);
+        }
+        updateInstrumentation();
+    }
+
+    public static void removeSnapshot(int chunkX, int chunkZ) {
+        long key = MapTile.key(chunkX, chunkZ);
+        STALE_TILES.remove(key); // Can't be rebuilt without a snapshot, so the old tile stays
+        ChunkSnapshot previous = SNAPSHOTS.remove(key);
+        if (previous != null) {
+            snapshotBytes -= previous.estimatedBytes();
+            updateInstrumentation();
+        }
+    }
+
+    public static ChunkSnapshot getSnapshot(int chunkX, int chunkZ) {
+        return SNAPSHOTS.get(MapTile.key(chunkX, chunkZ));
+    }
+
+    public static void forEachSnapshot(Consumer<ChunkSnapshot> consumer) {
+        synchronized (SNAPSHOTS) {
+            SNAPSHOTS.values().forEach(consumer);
+        }
+    }
+
+    public static MapTile getTile(int chunkX, int chunkZ) {
+        return TILE_CACHE.get(MapTile.key(chunkX, chunkZ));
+    }
+
+    // Loaded chunks within reach chunks of the given one along each axis
+    public static int snapshotsWithin(int chunkX, int chunkZ, int reach) {
+        int count = 0;
+        synchronized (SNAPSHOTS) {
+            for (LongIterator it = SNAPSHOTS.keySet().iterator(); it.hasNext(); ) {
+                long key = it.nextLong();
+                if (Math.abs((int) key - chunkX) <= reach && Math.abs((int) (key >> 32) - chunkZ) <= reach) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public static LongSet staleTiles() {
+        return STALE_TILES_VIEW;
+    }
+
+    // Caches a newly built tile and shades it against its neighbours
+    public static void putTile(MapTile tile, int seaLevel) {
+        long key = MapTile.key(tile.chunkX, tile.chunkZ);
+        MapTile previous = TILE_CACHE.put(key, tile);
+        if (previous != null) {
+            cacheBytes -= previous.estimatedBytes();
+        }
+        cacheBytes += tile.estimatedBytes();
+        STALE_TILES.remove(key);
+
+        shadeWithNeighbours(tile, seaLevel);
+        updateInstrumentation();
+    }
+
+    private static void shadeWithNeighbours(MapTile tile, int seaLevel) {
+        MapTile north = getTile(tile.chunkX, tile.chunkZ - 1);
+        MapTile west = getTile(tile.chunkX - 1, tile.chunkZ);
+        tile.shade(north, west, seaLevel);
+        markRegionDirty(tile.chunkX, tile.chunkZ);
+
+        // The tiles to the south and east borrow their edge rows from this one
+        MapTile south = getTile(tile.chunkX, tile.chunkZ + 1);
+        if (south != null) {
+            south.shade(tile, getTile(tile.chunkX - 1, tile.chunkZ + 1), seaLevel);
+            markRegionDirty(south.chunkX, south.chunkZ);
+        }
+        MapTile east = getTile(tile.chunkX + 1, tile.chunkZ);
+        if (east != null) {
+            east.shade(getTile(tile.chunkX + 1, tile.chunkZ - 1), tile, seaLevel);
+            markRegionDirty(east.chunkX, east.chunkZ);
+        }
+    }
+
+    private static void markRegionDirty(int chunkX, int chunkZ) {
+        MapRegion region = REGIONS.get(MapRegion.key(chunkX >> 4, chunkZ >> 4));
+        if (region != null) {
+            region.markDirty(chunkX, chunkZ);
+        }
+    }
+
+    // Region image at the given tile level; see MapRegion.colorsAtLevel for the layout
+    public static int[] regionColors(int regionX, int regionZ, int level) {
+        long key = MapRegion.key(regionX, regionZ);
+        MapRegion region = REGIONS.get(key);
+        if (region == null) {
+            region = new MapRegion(regionX, regionZ);
+            REGIONS.put(key, region);
+        }
+
+        long before = region.estimatedBytes();
+        int[] colors = region.colorsAtLevel(level);
+        long after = region.estimatedBytes();
+        if (after != before) {
+            regionBytes += after - before;
+            updateInstrumentation();
+        }
+        return colors;
+    }
+
+    public static void clear() {
+        TILE_CACHE.clear();
+        cacheBytes = 0;
+        REGIONS.clear();
+        regionBytes = 0;
+        STALE_TILES.clear();
+        SNAPSHOTS.clear();
+        snapshotBytes = 0;
+        DIRTY_CHUNKS.clear();
+        stuckBytes = -1;
+        updateInstrumentation();
+    }
+
+    // Covers the estimatedBytes of every tile, snapshot and region image: rough heap sizes
+    // including array headers and the cache map entry
+    public static long budgetBytes() {
+        return Math.max(1, ZeesMapConfig.get().cacheBudgetMb) * 1024L * 1024L;
+    }
+
+    // Drop the region images and then the tiles farthest from the player until the caches fit the
+    // budget again. Snapshots count towards the budget but are never evicted, since they only exist
+    // for loaded chunks, so tiles get what they leave over, down to a floor. Nothing the minimap
+    // can currently show is evicted, or it would be rebuilt and evicted again on every tick.
+    public static void enforceBudget(double playerX, double playerZ, int zoomLevel) {
+        long budget = budgetBytes();
+        long floor = (long) (budget * MIN_TILE_SHARE);
+        if (cacheBytes + regionBytes <= Math.max(budget - snapshotBytes, floor)) return;
+
+        int playerChunkX = ((int) Math.floor(playerX)) >> 4;
+        int playerChunkZ = ((int) Math.floor(playerZ)) >> 4;
+        long playerChunk = MapTile.key(playerChunkX, playerChunkZ);
+        if (cacheBytes + snapshotBytes + regionBytes == stuckBytes && playerChunk == stuckChunk && zoomLevel == stuckZoom) return;
+
+        int reach = MinimapScheduler.frameReachChunks(zoomLevel);
+
+        // Region images are rebuilt from the tiles if they come back into view
+        for (Iterator<MapRegion> it = REGIONS.values().iterator(); it.hasNext(); ) {
+            MapRegion region = it.next();
+            int nearestX = MathHelper.clamp(playerChunkX, region.regionX * MapRegion.CHUNKS, region.regionX * MapRegion.CHUNKS + MapRegion.CHUNKS - 1);
+            int nearestZ = MathHelper.clamp(playerChunkZ, region.regionZ * MapRegion.CHUNKS, region.regionZ * MapRegion.CHUNKS + MapRegion.CHUNKS - 1);
+            if (!inView(nearestX, nearestZ, playerChunkX, playerChunkZ, reach)) {
+                regionBytes -= region.estimatedBytes();
+                it.remove();
+            }
+        }
+
+        long target = (long) (Math.max(budget - snapshotBytes, floor) * EVICTION_TARGET) - regionBytes;
+        if (cacheBytes > target) {
+            List<MapTile> tiles = new ArrayList<>();
+            for (MapTile tile : TILE_CACHE.values()) {
+                if (!inView(tile.chunkX, tile.chunkZ, playerChunkX, playerChunkZ, reach)) {
+                    tiles.add(tile);
+                }
+            }
+            tiles.sort((a, b) -> Long.compare(
+                    distanceSq(b, playerChunkX, playerChunkZ),
+                    distanceSq(a, playerChunkX, playerChunkZ)));
+
+            for (MapTile tile : tiles) {
+                if (cacheBytes <= target) break;
+
+                long key = MapTile.key(tile.chunkX, tile.chunkZ);
+                TILE_CACHE.remove(key);
+                cacheBytes -= tile.estimatedBytes();
+                markRegionDirty(tile.chunkX, tile.chunkZ);
+                if (SNAPSHOTS.containsKey(key)) {
+                    STALE_TILES.add(key); // Still loaded, so it is rebuilt if it comes back into view
+                }
+                MapInstrumentation.tilesEvicted++;
+            }
+        }
+
+        if (cacheBytes > target) {
+            stuckBytes = cacheBytes + snapshotBytes + regionBytes;
+            stuckChunk = playerChunk;
+            stuckZoom = zoomLevel;
+        } else {
+            stuckBytes = -1;
+        }
+        updateInstrumentation();
+    }
+
+    private static boolean inView(int chunkX, int chunkZ, int playerChunkX, int playerChunkZ, int reach) {
+        return Math.abs(chunkX - playerChunkX) <= reach && Math.abs(chunkZ - playerChunkZ) <= reach;
+    }
+
+    private static long distanceSq(MapTile tile, int chunkX, int chunkZ) {
+        long dx = tile.chunkX - chunkX;
+        long dz = tile.chunkZ - chunkZ;
+        return dx * dx + dz * dz;
+    }
+
+    private static void updateInstrumentation() {
+        MapInstrumentation.cachedTiles = TILE_CACHE.size();
+        MapInstrumentation.cacheBytes = cacheBytes + snapshotBytes + regionBytes;
+        MapInstrumentation.snapshots = SNAPSHOTS.size();
+        MapInstrumentation.cacheBudgetBytes = budgetBytes();
+    }
+}
@@ -0,0 +1,92 @@
+package net.yumeverse.zeesmap.render;
+
+import java.util.Arrays;
+
+// Samples the cached map around the player into a grid of colors, one cell per sample.
+// Only reads region images; out-of-date tiles are tracked by MapCacheManager and rebuilt by
+// the scheduler.
+public class MapFrameComposer {
+    public static final int RENDER_DISTANCE = 64; // blocks to render in each direction at 1:1
+    public static final int SAMPLE_SHIFT = 1;
+    public static final int SAMPLE_RATE = 1 << SAMPLE_SHIFT; // Sample every 2 blocks for better performance
+    public static final int CELLS = RENDER_DISTANCE * 2 / SAMPLE_RATE; // cells visible along each side
+
+    // Extra cells on every side so the drawn map can pan between updates without running out
+    public static final int MARGIN = 8;
+    public static final int FRAME_CELLS = CELLS + MARGIN * 2;
+
+    // Cell whose top-left corner is the grid origin, and how far from it the circular map can reach.
+    // The renderer pans up to MARGIN cells along both axes at once, so the reach covers the diagonal.
+    private static final int CENTER = MARGIN + CELLS / 2;
+    private static final int REACH = CELLS / 2 + (int) Math.ceil(MARGIN * Math.sqrt(2));
+
+    // Zoom levels 1:1 to 1:8; each reads the tile level given by sampleLevel
+    public static final int MAX_ZOOM = 3;
+
+    // Blocks shown in each direction at the given zoom level
+    public static int viewDistance(int zoomLevel) {
+        return RENDER_DISTANCE << zoomLevel;
+    }
+
+    // Blocks covered by one cell along each side
+    public static int cellSize(int zoomLevel) {
+        return SAMPLE_RATE << zoomLevel;
+    }
+
+    // Tile level with exactly one averaged pixel per cell
+    public static int sampleLevel(int zoomLevel) {
+        return zoomLevel + SAMPLE_SHIFT;
+    }
+
+    // The grid snaps to whole cells so zoomed-out maps don't shimmer as the player moves; the
+    // renderer pans by the remainder
+    public static int gridOrigin(double playerPos, int zoomLevel) {
+        int cellSize = cellSize(zoomLevel);
+        return Math.floorDiv((int) Math.floor(playerPos), cellSize) * cellSize;
+    }
+
+    // Fills cells[cellZ * FRAME_CELLS + cellX] with an opaque ARGB color, or 0 where nothing is drawn.
+    // Zooming out widens the cells and reads a more downsampled level of the same region images,
+    // so every zoom level needs about the same number of lookups and cell writes.
+    public static void compose(double playerX, double playerZ, int zoomLevel, int[] cells) {
+        int level = sampleLevel(zoomLevel);
+        int cellSize = cellSize(zoomLevel);
+        int regionCells = MapRegion.BLOCKS >> level;
+
+        // World position of the top-left corner of cell 0
+        int gridX = gridOrigin(playerX, zoomLevel) - CENTER * cellSize;
+        int gridZ = gridOrigin(playerZ, zoomLevel) - CENTER * cellSize;
+
+        Arrays.fill(cells, 0);
+
+        int lastRegionX = (gridX + FRAME_CELLS * cellSize - 1) >> MapRegion.BLOCK_SHIFT;
+        int lastRegionZ = (gridZ + FRAME_CELLS * cellSize - 1) >> MapRegion.BLOCK_SHIFT;
+
+        for (int regionZ = gridZ >> MapRegion.BLOCK_SHIFT; regionZ <= lastRegionZ; regionZ++) {
+            // Region edges fall on cell edges since cells divide the region size
+            int firstCellZ = Math.max(0, ((regionZ << MapRegion.BLOCK_SHIFT) - gridZ) / cellSize);
+            int endCellZ = Math.min(FRAME_CELLS, (((regionZ + 1) << MapRegion.BLOCK_SHIFT) - gridZ) / cellSize);
+
+            for (int regionX = gridX >> MapRegion.BLOCK_SHIFT; regionX <= lastRegionX; regionX++) {
+                int firstCellX = Math.max(0, ((regionX << MapRegion.BLOCK_SHIFT) - gridX) / cellSize);
+                int endCellX = Math.min(FRAME_CELLS, (((regionX + 1) << MapRegion.BLOCK_SHIFT) - gridX) / cellSize);
+                int[] regionColors = MapCacheManager.regionColors(regionX, regionZ, level);
+
+                for (int cellZ = firstCellZ; cellZ < endCellZ; cellZ++) {
+                    int dz = cellZ - CENTER;
+                    int row = (((gridZ + cellZ * cellSize) & (MapRegion.BLOCKS - 1)) >> level) * regionCells;
+
+                    for (int cellX = firstCellX; cellX < endCellX; cellX++) {
+                        int dx = cellX - CENTER;
+
+                        // Only cells the circular minimap can reach while panning are needed
+                        if (dx * dx + dz * dz > REACH * REACH) continue;
+
+                        int column = ((gridX + cellX * cellSize) & (MapRegion.BLOCKS - 1)) >> level;
+                        cells[cellZ * FRAME_CELLS + cellX] = regionColors[row + column];
+                    }
+                }
+            }
+        }
+    }
+}
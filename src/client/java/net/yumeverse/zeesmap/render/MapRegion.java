@@ -0,0 +1,97 @@
+package net.yumeverse.zeesmap.render;
+
+import java.util.Arrays;
+
+// 16x16 chunks of tile colors stitched into one image per sample level, so composing a frame
+// takes one lookup per region instead of one per chunk and costs the same at every zoom level.
+// Images are built on first use and only the chunks whose tile changed since are copied again.
+public class MapRegion {
+    public static final int CHUNKS = 16; // chunks along each side
+    public static final int BLOCK_SHIFT = 8; // log2 of the blocks along each side
+    public static final int BLOCKS = 1 << BLOCK_SHIFT;
+
+    public final int regionX;
+    public final int regionZ;
+
+    // Opaque ARGB colors per level, or 0 where no tile is cached
+    private final int[][] levels = new int[MapTile.MAX_TILE_LEVEL + 1][];
+
+    // One bit per chunk whose tile changed since the level was last copied
+    private final long[][] dirty = new long[MapTile.MAX_TILE_LEVEL + 1][];
+
+    public MapRegion(int regionX, int regionZ) {
+        this.regionX = regionX;
+        this.regionZ = regionZ;
+    }
+
+    public static long key(int regionX, int regionZ) {
+        return MapTile.key(regionX, regionZ);
+    }
+
+    public void markDirty(int chunkX, int chunkZ) {
+        int bit = ((chunkZ & (CHUNKS - 1)) << 4) | (chunkX & (CHUNKS - 1));
+        for (int level = 0; level <= MapTile.MAX_TILE_LEVEL; level++) {
+            if (dirty[level] != null) {
+                dirty[level][bit >> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    // Colors at the given level, indexed by z * (BLOCKS >> level) + x with block offsets shifted right by level
+    public int[] colorsAtLevel(int level) {
+        int[] pixels = levels[level];
+        long[] dirtyBits = dirty[level];
+        if (pixels == null) {
+            int size = BLOCKS >> level;
+            pixels = new int[size * size];
+            levels[level] = pixels;
+            dirtyBits = new long[CHUNKS * CHUNKS / 64];
+            Arrays.fill(dirtyBits, -1L);
+            dirty[level] = dirtyBits;
+        }
+
+        for (int word = 0; word < dirtyBits.length; word++) {
+            long bits = dirtyBits[word];
+            while (bits != 0) {
+                int bit = (word << 6) | Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                copyTile(pixels, level, bit & (CHUNKS - 1), bit >> 4);
+            }
+            dirtyBits[word] = 0;
+        }
+
+        return pixels;
+    }
+
+    private void copyTile(int[] pixels, int level, int localX, int localZ) {
+        MapTile tile = MapCacheManager.getTile(regionX * CHUNKS + localX, regionZ * CHUNKS + localZ);
+        int tileSize = MapTile.SIZE >> level;
+        int size = BLOCKS >> level;
+        int start = localZ * tileSize * size + localX * tileSize;
+
+        if (tile == null) {
+            for (int z = 0; z < tileSize; z++) {
+                Arrays.fill(pixels, start + z * size, start + z * size + tileSize, 0);
+            }
+            return;
+        }
+
+        int[] colors = tile.colorsAtLevel(level);
+        for (int z = 0; z < tileSize; z++) {
+            for (int x = 0; x < tileSize; x++) {
+                pixels[start + z * size + x] = 0xFF000000 | colors[MapTile.levelIndex(x, z, level)];
+            }
+        }
+    }
+
+    // Counts only the images built so far
+    public long estimatedBytes() {
+        long bytes = 16 + 2 * (16 + 8L * (MapTile.MAX_TILE_LEVEL + 1)) + 96;
+        for (int level = 0; level <= MapTile.MAX_TILE_LEVEL; level++) {
+            if (levels[level] != null) {
+                bytes += 16 + levels[level].length * 4L + 16 + dirty[level].length * 8L;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,130 @@
+package net.yumeverse.zeesmap.render;
+
+public class MapTile {
+    public static final int SIZE = 16;
+    public static final int AREA = SIZE * SIZE;
+
+    // Marks a column with no surface block (void / not generated)
+    public static final short NO_HEIGHT = Short.MIN_VALUE;
+
+    private static final float SLOPE_SHADE = 0.06f; // Brightness change per block of slope
+    private static final float ALTITUDE_SHADE = 0.002f; // Subtle overall elevation cue
+
+    public final int chunkX;
+    public final int chunkZ;
+
+    // Unshaded colors and surface heights, indexed by (z << 4) | x
+    public final int[] baseColors = new int[AREA];
+    public final short[] heights = new short[AREA];
+
+    // Final colors after hillshading
+    public final int[] colors = new int[AREA];
+
+    // Level n averages 2^n x 2^n blocks into one pixel, down to a single pixel for the whole tile
+    public static final int MAX_TILE_LEVEL = 4;
+
+    // Downsampled copies of colors, built on demand and dropped whenever the tile is reshaded
+    private final int[][] levels = new int[MAX_TILE_LEVEL + 1][];
+
+    // Version of the source data this tile was built from, see TileBuilder.getVersion
+    public long version;
+
+    public MapTile(int chunkX, int chunkZ) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+    }
+
+    public static int index(int x, int z) {
+        return (z << 4) | x;
+    }
+
+    // Same packing as ChunkPos.toLong, kept here so the tile pipeline has no world dependencies
+    public static long key(int chunkX, int chunkZ) {
+        return (chunkX & 0xFFFFFFFFL) | (chunkZ & 0xFFFFFFFFL) << 32;
+    }
+
+    // Counts every downsampled level built so far
+    public long estimatedBytes() {
+        long levelBytes = 16 + 16L * (MAX_TILE_LEVEL + 1);
+        for (int level = 1; level <= MAX_TILE_LEVEL; level++) {
+            levelBytes += 16 + (AREA >> (2 * level)) * 4L;
+        }
+        return 2 * (16 + AREA * 4L) + (16 + AREA * 2L) + levelBytes + 96;
+    }
+
+    public static int levelIndex(int x, int z, int level) {
+        return (z << (4 - level)) | x;
+    }
+
+    // Colors at the given zoom level, indexed by levelIndex with coordinates shifted right by level
+    public int[] colorsAtLevel(int level) {
+        if (level == 0) return colors;
+
+        int[] downsampled = levels[level];
+        if (downsampled == null) {
+            downsampled = downsample(colorsAtLevel(level - 1), SIZE >> (level - 1));
+            levels[level] = downsampled;
+        }
+        return downsampled;
+    }
+
+    // Averages each 2x2 block of a square color grid
+    private static int[] downsample(int[] source, int sourceSize) {
+        int size = sourceSize / 2;
+        int[] result = new int[size * size];
+
+        for (int z = 0; z < size; z++) {
+            for (int x = 0; x < size; x++) {
+                int i = (z * 2) * sourceSize + x * 2;
+                int c0 = source[i], c1 = source[i + 1], c2 = source[i + sourceSize], c3 = source[i + sourceSize + 1];
+
+                int r = (((c0 >> 16) & 0xFF) + ((c1 >> 16) & 0xFF) + ((c2 >> 16) & 0xFF) + ((c3 >> 16) & 0xFF)) >> 2;
+                int g = (((c0 >> 8) & 0xFF) + ((c1 >> 8) & 0xFF) + ((c2 >> 8) & 0xFF) + ((c3 >> 8) & 0xFF)) >> 2;
+                int b = ((c0 & 0xFF) + (c1 & 0xFF) + (c2 & 0xFF) + (c3 & 0xFF)) >> 2;
+                result[z * size + x] = (r << 16) | (g << 8) | b;
+            }
+        }
+
+        return result;
+    }
+
+    // Compute slope shading in a single pass over the height buffer. Light comes from the
+    // north-west like vanilla maps, so each column is compared against its north and west
+    // neighbours; the first row/column borrows the edge of the adjacent cached tile.
+    public void shade(MapTile north, MapTile west, int seaLevel) {
+        for (int z = 0; z < SIZE; z++) {
+            for (int x = 0; x < SIZE; x++) {
+                int i = index(x, z);
+                int h = heights[i];
+
+                if (h == NO_HEIGHT) {
+                    colors[i] = baseColors[i];
+                    continue;
+                }
+
+                int northH = z > 0 ? heights[i - SIZE] : north != null ? north.heights[index(x, SIZE - 1)] : NO_HEIGHT;
+                int westH = x > 0 ? heights[i - 1] : west != null ? west.heights[index(SIZE - 1, z)] : NO_HEIGHT;
+                if (northH == NO_HEIGHT) northH = h;
+                if (westH == NO_HEIGHT) westH = h;
+
+                int slope = (h - northH) + (h - westH);
+                float slopeFactor = Math.max(-0.4f, Math.min(0.3f, slope * SLOPE_SHADE));
+                float altitudeFactor = Math.max(-0.15f, Math.min(0.15f, (h - seaLevel) * ALTITUDE_SHADE));
+
+                colors[i] = scale(baseColors[i], 1.0f + slopeFactor + altitudeFactor);
+            }
+        }
+
+        // Colors changed, so the downsampled levels are rebuilt on next use
+        for (int level = 1; level <= MAX_TILE_LEVEL; level++) {
+            levels[level] = null;
+        }
+    }
+
+    private static int scale(int color, float factor) {
+        int r = Math.min(255, (int) (((color >> 16) & 0xFF) * factor));
+        int g = Math.min(255, (int) (((color >> 8) & 0xFF) * factor));
+        int b = Math.min(255, (int) ((color & 0xFF) * factor));
+        return (r << 16) | (g << 8) | b;
+    }
+}
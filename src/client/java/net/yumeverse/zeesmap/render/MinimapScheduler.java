@@ -0,0 +1,123 @@
+package net.yumeverse.zeesmap.render;
+
+import it.unimi.dsi.fastutil.longs.LongHeapPriorityQueue;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import net.yumeverse.zeesmap.config.ZeesMapConfig;
+import net.yumeverse.zeesmap.debug.MapInstrumentation;
+
+// Keeps map updates off the render path. Runs once per client tick: rebuilds out-of-date tiles
+// nearest the player first within a time budget, and recomposes the minimap image at the
+// configured rate. The HUD only draws the latest image, so frame rate no longer drives map work.
+public class MinimapScheduler {
+    private static final int TICKS_PER_SECOND = 20;
+
+    // Latest composed image and where it was composed; the renderer pans from the grid origin
+    public static final int[] frame = new int[MapFrameComposer.FRAME_CELLS * MapFrameComposer.FRAME_CELLS];
+    public static double frameX;
+    public static double frameZ;
+    public static int frameOriginX;
+    public static int frameOriginZ;
+    public static int frameZoom;
+    public static long frameVersion = 0; // Bumped on every compose so the renderer knows to upload
+
+    // Out-of-date tiles within the last composed frame, nearest to the player chunk first
+    private static int queueChunkX;
+    private static int queueChunkZ;
+    private static final LongHeapPriorityQueue QUEUE = new LongHeapPriorityQueue(
+            (a, b) -> Long.compare(distanceSq(a), distanceSq(b)));
+
+    private static int ticksSinceCompose = 0;
+    private static boolean composeNow = true;
+
+    public static void tick(TileBuilder builder, double playerX, double playerZ, int zoomLevel) {
+        buildQueuedTiles(builder, ZeesMapConfig.get().tileBuildBudgetMicros * 1000L);
+
+        ticksSinceCompose++;
+        if (composeNow || ticksSinceCompose >= ticksPerUpdate()
+                || zoomLevel != frameZoom || !withinMargin(playerX, playerZ)) {
+            compose(playerX, playerZ, zoomLevel);
+        }
+    }
+
+    // Drops queued work for the previous world; the next tick composes a fresh frame
+    public static void reset() {
+        QUEUE.clear();
+        composeNow = true;
+        MapInstrumentation.pendingTiles = 0;
+    }
+
+    private static int ticksPerUpdate() {
+        int updatesPerSecond = Math.max(1, Math.min(TICKS_PER_SECOND, ZeesMapConfig.get().updatesPerSecond));
+        return Math.round((float) TICKS_PER_SECOND / updatesPerSecond);
+    }
+
+    // Fast movement can outrun the margin before the next scheduled update
+    private static boolean withinMargin(double playerX, double playerZ) {
+        double limit = (MapFrameComposer.MARGIN - 1) * MapFrameComposer.cellSize(frameZoom);
+        return Math.abs(playerX - frameX) <= limit && Math.abs(playerZ - frameZ) <= limit;
+    }
+
+    private static void compose(double playerX, double playerZ, int zoomLevel) {
+        MapFrameComposer.compose(playerX, playerZ, zoomLevel, frame);
+        frameX = playerX;
+        frameZ = playerZ;
+        frameOriginX = MapFrameComposer.gridOrigin(playerX, zoomLevel);
+        frameOriginZ = MapFrameComposer.gridOrigin(playerZ, zoomLevel);
+        frameZoom = zoomLevel;
+        frameVersion++;
+        ticksSinceCompose = 0;
+        composeNow = false;
+
+        // Re-prioritise from scratch since the player has moved since the last compose. Tiles
+        // outside the frame wait until they come into view, or they would be built for nothing.
+        queueChunkX = ((int) Math.floor(playerX)) >> 4;
+        queueChunkZ = ((int) Math.floor(playerZ)) >> 4;
+        int reachChunks = frameReachChunks(zoomLevel);
+        QUEUE.clear();
+        for (LongIterator it = MapCacheManager.staleTiles().iterator(); it.hasNext(); ) {
+            long key = it.nextLong();
+            if (Math.abs((int) key - queueChunkX) <= reachChunks && Math.abs((int) (key >> 32) - queueChunkZ) <= reachChunks) {
+                QUEUE.enqueue(key);
+            }
+        }
+        MapInstrumentation.pendingTiles = QUEUE.size();
+
+        // A loaded chunk in the frame is a hit when its tile was up to date for this compose
+        int loaded = MapCacheManager.snapshotsWithin(queueChunkX, queueChunkZ, reachChunks);
+        MapInstrumentation.tileCacheMisses += QUEUE.size();
+        MapInstrumentation.tileCacheHits += loaded - QUEUE.size();
+    }
+
+    private static void buildQueuedTiles(TileBuilder builder, long budgetNanos) {
+        long start = System.nanoTime();
+
+        while (!QUEUE.isEmpty()) {
+            long key = QUEUE.dequeueLong();
+            int chunkX = (int) key;
+            int chunkZ = (int) (key >> 32);
+
+            // The chunk may have unloaded, or the tile been rebuilt, since it was queued
+            long version = builder.getVersion(chunkX, chunkZ);
+            MapTile tile = MapCacheManager.getTile(chunkX, chunkZ);
+            if (version < 0 || (tile != null && tile.version >= version)) continue;
+
+            MapCacheManager.putTile(builder.build(chunkX, chunkZ), builder.getSeaLevel());
+            MapInstrumentation.tilesBuilt++;
+
+            if (System.nanoTime() - start >= budgetNanos) break;
+        }
+
+        MapInstrumentation.pendingTiles = QUEUE.size();
+    }
+
+    // Chunks from the player to the edge of a frame at the given zoom, rounded up
+    public static int frameReachChunks(int zoomLevel) {
+        return (MapFrameComposer.FRAME_CELLS / 2 * MapFrameComposer.cellSize(zoomLevel) >> 4) + 1;
+    }
+
+    private static long distanceSq(long key) {
+        long dx = (int) key - queueChunkX;
+        long dz = (int) (key >> 32) - queueChunkZ;
+        return dx * dx + dz * dz;
+    }
+}
@@ -0,0 +1,221 @@
+package net.yumeverse.zeesmap.render;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.MathHelper;
+
+// Builds map tiles from chunk snapshots; touches no live world state, so it is safe off-thread
+public class SnapshotTileBuilder implements TileBuilder {
+    private final int seaLevel;
+
+    public SnapshotTileBuilder(int seaLevel) {
+        this.seaLevel = seaLevel;
+    }
+
+    @Override
+    public long getVersion(int chunkX, int chunkZ) {
+        ChunkSnapshot snapshot = MapCacheManager.getSnapshot(chunkX, chunkZ);
+        return snapshot == null ? -1 : snapshot.version;
+    }
+
+    @Override
+    public int getSeaLevel() {
+        return seaLevel;
+    }
+
+    @Override
+    public MapTile build(int chunkX, int chunkZ) {
+        ChunkSnapshot snapshot = MapCacheManager.getSnapshot(chunkX, chunkZ);
+        MapTile tile = new MapTile(chunkX, chunkZ);
+        tile.version = snapshot.version;
+
+        // Resolve each distinct top block once rather than once per column
+        int[] paletteColors = new int[snapshot.paletteSize()];
+        boolean[] paletteTinted = new boolean[snapshot.paletteSize()];
+        for (int p = 0; p < paletteColors.length; p++) {
+            Block block = snapshot.paletteBlock(p);
+            paletteColors[p] = getBlockMapColor(block);
+            paletteTinted[p] = shouldApplyBiomeTint(block);
+        }
+
+        for (int z = 0; z < MapTile.SIZE; z++) {
+            for (int x = 0; x < MapTile.SIZE; x++) {
+                int i = MapTile.index(x, z);
+                short height = snapshot.height(i);
+
+                if (height == MapTile.NO_HEIGHT) {
+                    tile.baseColors[i] = 0x404040; // Dark gray for void areas
+                    tile.heights[i] = MapTile.NO_HEIGHT;
+                    continue;
+                }
+
+                int p = snapshot.paletteIndex(i);
+                int baseColor = paletteColors[p];
+
+                // Apply biome tinting for grass and leaves
+                if (paletteTinted[p]) {
+                    baseColor = applyBiomeTint(baseColor, snapshot.temperature(x, z));
+                }
+
+                tile.baseColors[i] = baseColor;
+                tile.heights[i] = height;
+            }
+        }
+
+        return tile;
+    }
+
+    private static boolean shouldApplyBiomeTint(Block block) {
+        return block == Blocks.GRASS_BLOCK ||
+                block == Blocks.OAK_LEAVES ||
+                block == Blocks.BIRCH_LEAVES ||
+                block == Blocks.SPRUCE_LEAVES ||
+                block == Blocks.JUNGLE_LEAVES ||
+                block == Blocks.ACACIA_LEAVES ||
+                block == Blocks.DARK_OAK_LEAVES ||
+                block == Blocks.MANGROVE_LEAVES ||
+                (block.toString().contains("leaves")); // Catch modded leaves
+    }
+
+    private static int getBlockMapColor(Block block) {
+        // Water and liquids
+        if (block == Blocks.WATER) return 0x4A90E2;
+        if (block == Blocks.LAVA) return 0xFF6B1A;
+        if (block == Blocks.ICE || block == Blocks.PACKED_ICE || block == Blocks.BLUE_ICE) return 0xA0C4E4;
+
+        // Grass and vegetation
+        if (block == Blocks.GRASS_BLOCK) return 0x7CB342;
+        if (block == Blocks.DIRT || block == Blocks.COARSE_DIRT) return 0x976F3A;
+        if (block == Blocks.PODZOL) return 0x594A2E;
+        if (block == Blocks.MYCELIUM) return 0x705D75;
+        if (block == Blocks.FARMLAND) return 0x976F3A;
+        if (block == Blocks.DIRT_PATH) return 0xA8834A;
+
+        // Sand and desert
+        if (block == Blocks.SAND) return 0xF7E9A3;
+        if (block == Blocks.RED_SAND) return 0xD68C59;
+        if (block == Blocks.SANDSTONE) return 0xF7E9A3;
+        if (block == Blocks.RED_SANDSTONE) return 0xD68C59;
+        if (block == Blocks.TERRACOTTA) return 0xC47A5C;
+
+        // Stone and ores
+        if (block == Blocks.STONE || block == Blocks.COBBLESTONE) return 0x999999;
+        if (block == Blocks.DEEPSLATE || block == Blocks.COBBLED_DEEPSLATE) return 0x646464;
+        if (block == Blocks.GRANITE) return 0x9F6A42;
+        if (block == Blocks.DIORITE) return 0xC4C4C4;
+        if (block == Blocks.ANDESITE) return 0x8A8A8A;
+        if (block == Blocks.BEDROCK) return 0x565656;
+        if (block == Blocks.GRAVEL) return 0x8A8A8A;
+
+        // Snow and ice
+        if (block == Blocks.SNOW || block == Blocks.SNOW_BLOCK || block == Blocks.POWDER_SNOW) return 0xFFFEFE;
+
+        // Wood logs
+        if (block == Blocks.OAK_LOG || block == Blocks.OAK_WOOD || block == Blocks.STRIPPED_OAK_LOG) return 0x976F3A;
+        if (block == Blocks.BIRCH_LOG || block == Blocks.BIRCH_WOOD || block == Blocks.STRIPPED_BIRCH_LOG) return 0xD7CA8B;
+        if (block == Blocks.SPRUCE_LOG || block == Blocks.SPRUCE_WOOD || block == Blocks.STRIPPED_SPRUCE_LOG) return 0x6B4423;
+        if (block == Blocks.JUNGLE_LOG || block == Blocks.JUNGLE_WOOD || block == Blocks.STRIPPED_JUNGLE_LOG) return 0x976F3A;
+        if (block == Blocks.ACACIA_LOG || block == Blocks.ACACIA_WOOD || block == Blocks.STRIPPED_ACACIA_LOG) return 0xBA7E53;
+        if (block == Blocks.DARK_OAK_LOG || block == Blocks.DARK_OAK_WOOD || block == Blocks.STRIPPED_DARK_OAK_LOG) return 0x4A2F17;
+
+        // Try to handle newer wood types with fallback
+        String blockName = block.toString();
+        if (blockName.contains("cherry") && (blockName.contains("log") || blockName.contains("wood"))) return 0xE8B4CB;
+        if (blockName.contains("mangrove") && (blockName.contains("log") || blockName.contains("wood"))) return 0x7A5543;
+
+        // Leaves - base colors before biome tinting
+        if (block == Blocks.OAK_LEAVES) return 0x59AE30;
+        if (block == Blocks.BIRCH_LEAVES) return 0x8DB360;
+        if (block == Blocks.SPRUCE_LEAVES) return 0x619A3C;
+        if (block == Blocks.JUNGLE_LEAVES) return 0x30B95A;
+        if (block == Blocks.ACACIA_LEAVES) return 0x9CAB3C;
+        if (block == Blocks.DARK_OAK_LEAVES) return 0x2D5016;
+
+        // Handle newer leaves with fallback
+        if (blockName.contains("cherry") && blockName.contains("leaves")) return 0xF2B2D6;
+        if (blockName.contains("mangrove") && blockName.contains("leaves")) return 0x59AE30;
+
+        // Nether blocks
+        if (block == Blocks.NETHERRACK) return 0x7A342A;
+        if (block == Blocks.NETHER_BRICKS) return 0x2C1414;
+        if (block == Blocks.SOUL_SAND || block == Blocks.SOUL_SOIL) return 0x4C3426;
+        if (blockName.contains("crimson") && blockName.contains("nylium")) return 0x943F61;
+        if (blockName.contains("warped") && blockName.contains("nylium")) return 0x167E86;
+
+        // End blocks
+        if (block == Blocks.END_STONE) return 0xE0D99A;
+        if (block == Blocks.PURPUR_BLOCK) return 0xAB8AAB;
+
+        // Ores (more vibrant colors for visibility)
+        if (blockName.contains("coal_ore")) return 0x343434;
+        if (blockName.contains("iron_ore")) return 0xD8AF93;
+        if (blockName.contains("gold_ore")) return 0xFCEE4B;
+        if (blockName.contains("diamond_ore")) return 0x5CDBD5;
+        if (blockName.contains("emerald_ore")) return 0x00D93A;
+        if (blockName.contains("redstone_ore")) return 0xD93A00;
+        if (blockName.contains("lapis_ore")) return 0x4A4AFF;
+        if (blockName.contains("copper_ore")) return 0xFF6A00;
+
+        // Clay and concrete
+        if (block == Blocks.CLAY) return 0xA3A3A3;
+
+        // Common concrete colors
+        if (blockName.contains("white") && blockName.contains("concrete")) return 0xD5D5D5;
+        if (blockName.contains("black") && blockName.contains("concrete")) return 0x1D1D1D;
+        if (blockName.contains("red") && blockName.contains("concrete")) return 0xB02E26;
+        if (blockName.contains("green") && blockName.contains("concrete")) return 0x5E7C16;
+        if (blockName.contains("blue") && blockName.contains("concrete")) return 0x3C44AA;
+        if (blockName.contains("yellow") && blockName.contains("concrete")) return 0xF9D71C;
+
+        // Default color for unknown blocks
+        return 0x808080;
+    }
+
+    private static int applyBiomeTint(int baseColor, float temperature) {
+        // Simple humidity estimation based on temperature and biome characteristics
+        float humidity = estimateBiomeHumidity(temperature);
+
+        // Adjust color based on temperature and humidity
+        int r = (baseColor >> 16) & 0xFF;
+        int g = (baseColor >> 8) & 0xFF;
+        int b = baseColor & 0xFF;
+
+        // Cool biomes (temperature < 0.3) - more blue-green
+        if (temperature < 0.3f) {
+            g = (int) (g * 0.9f);
+            b = (int) (b * 1.1f);
+        }
+        // Hot biomes (temperature > 0.9) - more yellow-brown
+        else if (temperature > 0.9f) {
+            r = (int) (r * 1.1f);
+            g = (int) (g * 0.95f);
+            b = (int) (b * 0.8f);
+        }
+
+        // Dry biomes (low humidity) - less vibrant
+        if (humidity < 0.3f) {
+            r = (int) (r * 0.9f);
+            g = (int) (g * 0.85f);
+            b = (int) (b * 0.8f);
+        }
+
+        r = MathHelper.clamp(r, 0, 255);
+        g = MathHelper.clamp(g, 0, 255);
+        b = MathHelper.clamp(b, 0, 255);
+
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private static float estimateBiomeHumidity(float temperature) {
+        // Simplified humidity estimation based on temperature
+        if (temperature < 0.2f) {
+            return 0.2f; // Cold biomes tend to be dry
+        } else if (temperature > 1.0f) {
+            return 0.1f; // Very hot biomes tend to be dry (deserts)
+        } else if (temperature > 0.5f && temperature < 0.8f) {
+            return 0.6f; // Temperate biomes have moderate humidity
+        } else {
+            return 0.4f; // Default moderate humidity
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package net.yumeverse.zeesmap.render;
+
+// Source of unshaded map tiles; the live world in game, recorded chunks in the replay harness
+public interface TileBuilder {
+    // Version of the data available for the chunk, increasing whenever it changes; -1 if none
+    long getVersion(int chunkX, int chunkZ);
+
+    MapTile build(int chunkX, int chunkZ);
+
+    int getSeaLevel();
+}
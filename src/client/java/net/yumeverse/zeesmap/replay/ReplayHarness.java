@@ -0,0 +1,134 @@
+package net.yumeverse.zeesmap.replay;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.yumeverse.zeesmap.config.ZeesMapConfig;
+import net.yumeverse.zeesmap.debug.MapInstrumentation;
+import net.yumeverse.zeesmap.render.ChunkSnapshot;
+import net.yumeverse.zeesmap.render.MapCacheManager;
+import net.yumeverse.zeesmap.render.MapFrameComposer;
+import net.yumeverse.zeesmap.render.MinimapScheduler;
+import net.yumeverse.zeesmap.render.SnapshotTileBuilder;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+// Replays recorded or built-in scenarios through the map pipeline without a game client and
+// reports per-tick update cost. MinimapScheduler, MapFrameComposer and MapCacheManager's cache
+// methods need no world or GL, so they run as in game. Drawing is a texture upload and one quad
+// fan, so it is not replayed.
+// Tiles are built from the recorded chunk snapshots by the real SnapshotTileBuilder. Capturing
+// the snapshots needs a live world, so that part of the pipeline is not covered.
+// Run with: ./gradlew replayMinimap [-Pscenarios="--zoom 3 --updates-per-second 20 elytra path/to/file.zmr"]
+public class ReplayHarness {
+    public static void main(String[] args) throws IOException {
+        // Registries must exist before snapshots can be generated or read
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        List<String> scenarios = new ArrayList<>();
+        int zoomLevel = 0;
+        boolean warmup = true;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--updates-per-second" -> ZeesMapConfig.get().updatesPerSecond = Integer.parseInt(args[++i]);
+                case "--budget-us" -> ZeesMapConfig.get().tileBuildBudgetMicros = Integer.parseInt(args[++i]);
+                case "--zoom" -> zoomLevel = Math.max(0, Math.min(MapFrameComposer.MAX_ZOOM, Integer.parseInt(args[++i])));
+                case "--no-warmup" -> warmup = false;
+                default -> scenarios.add(args[i]);
+            }
+        }
+        if (scenarios.isEmpty()) {
+            scenarios.addAll(Arrays.asList(ReplayScenarios.NAMES));
+        }
+
+        System.out.printf("%-16s %7s %9s %9s %9s %12s %7s %7s %8s %9s%n",
+                "scenario", "ticks", "p50 us", "p99 us", "max us", "alloc B/tk", "hit %", "built", "evicted", "cache MB");
+
+        for (String scenario : scenarios) {
+            ReplayRecording recording = load(scenario);
+
+            // First pass lets the JIT settle so runs are comparable
+            if (warmup) {
+                replay(recording, zoomLevel);
+            }
+            Result result = replay(recording, zoomLevel);
+
+            System.out.printf("%-16s %7d %9.1f %9.1f %9.1f %12d %7.1f %7d %8d %9.2f%n",
+                    scenario,
+                    result.tickNanos.length,
+                    percentile(result.tickNanos, 0.50) / 1000.0,
+                    percentile(result.tickNanos, 0.99) / 1000.0,
+                    percentile(result.tickNanos, 1.0) / 1000.0,
+                    result.allocatedBytes / Math.max(1, result.tickNanos.length),
+                    MapInstrumentation.hitRate() * 100.0,
+                    MapInstrumentation.tilesBuilt,
+                    MapInstrumentation.tilesEvicted,
+                    result.peakCacheBytes / (1024.0 * 1024.0));
+        }
+    }
+
+    private static ReplayRecording load(String scenario) throws IOException {
+        Path file = Paths.get(scenario);
+        if (!Files.exists(file)) {
+            return ReplayScenarios.create(scenario);
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            return ReplayRecording.read(in);
+        }
+    }
+
+    private static class Result {
+        long[] tickNanos;
+        long allocatedBytes;
+        long peakCacheBytes;
+    }
+
+    private static Result replay(ReplayRecording recording, int zoomLevel) {
+        MapCacheManager.clear();
+        MinimapScheduler.reset();
+        MapInstrumentation.reset();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        SnapshotTileBuilder builder = new SnapshotTileBuilder(recording.seaLevel);
+
+        Result result = new Result();
+        result.tickNanos = new long[recording.ticks.size()];
+
+        for (int t = 0; t < recording.ticks.size(); t++) {
+            ReplayRecording.Tick tick = recording.ticks.get(t);
+            for (ChunkSnapshot snapshot : tick.snapshots) {
+                MapCacheManager.putSnapshot(snapshot);
+            }
+            for (int i = 0; i < tick.removed.size(); i++) {
+                long key = tick.removed.getLong(i);
+                MapCacheManager.removeSnapshot((int) key, (int) (key >> 32));
+            }
+
+            // Same order as in game, where MapCacheManager's tick handler runs before the minimap's
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            MapCacheManager.enforceBudget(tick.x, tick.z, zoomLevel);
+            MinimapScheduler.tick(builder, tick.x, tick.z, zoomLevel);
+            result.tickNanos[t] = System.nanoTime() - start;
+            result.allocatedBytes += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+            result.peakCacheBytes = Math.max(result.peakCacheBytes, MapInstrumentation.cacheBytes);
+        }
+
+        return result;
+    }
+
+    private static long percentile(long[] values, double p) {
+        if (values.length == 0) return 0;
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,122 @@
+package net.yumeverse.zeesmap.replay;
+
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.text.Text;
+import net.yumeverse.zeesmap.render.ChunkSnapshot;
+import net.yumeverse.zeesmap.render.MapCacheManager;
+import net.yumeverse.zeesmap.render.MapTile;
+
+import java.io.*;
+import java.nio.file.*;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+// Captures the player path and every chunk snapshot the live world produces so a session can be
+// replayed through the map pipeline, tile building included, by ReplayHarness. A recording covers
+// a single world: it stops on disconnect, dimension change and game shutdown.
+public class ReplayRecorder {
+    private static DataOutputStream out;
+    private static Path outPath;
+    private static ClientWorld recordingWorld;
+    private static ReplayRecording.Tick pending;
+
+    public static boolean isRecording() {
+        return out != null;
+    }
+
+    public static void toggle(MinecraftClient client) {
+        if (isRecording()) {
+            stop(client);
+        } else {
+            start(client);
+        }
+    }
+
+    private static void start(MinecraftClient client) {
+        if (client.world == null || client.player == null) return;
+
+        try {
+            Path dir = FabricLoader.getInstance().getGameDir().resolve("zeesmap_replays");
+            Files.createDirectories(dir);
+            outPath = dir.resolve(new SimpleDateFormat("yyyy-MM-dd_HH.mm.ss").format(new Date()) + ".zmr");
+
+            out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(outPath))));
+            ReplayRecording.writeHeader(out, client.world.getSeaLevel());
+            recordingWorld = client.world;
+            pending = new ReplayRecording.Tick(client.player.getX(), client.player.getZ());
+
+            // Chunks loaded before recording started arrive with the first tick
+            MapCacheManager.forEachSnapshot(pending.snapshots::add);
+
+            client.player.sendMessage(Text.of("Recording minimap replay to " + outPath.getFileName()), true);
+        } catch (IOException e) {
+            System.err.println("Failed to start minimap replay: " + e.getMessage());
+            e.printStackTrace();
+            out = null;
+        }
+    }
+
+    // Also called when the client shuts down so the gzip stream is finished properly
+    public static void stop(MinecraftClient client) {
+        if (!isRecording()) return;
+
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Failed to finish minimap replay: " + e.getMessage());
+            e.printStackTrace();
+        }
+        out = null;
+        recordingWorld = null;
+        pending = null;
+
+        if (client.player != null) {
+            client.player.sendMessage(Text.of("Saved minimap replay " + outPath.getFileName()), true);
+        }
+    }
+
+    // Called at the end of each client tick, after the map update, with the snapshots captured during it
+    public static void tick(MinecraftClient client) {
+        if (!isRecording()) return;
+
+        if (client.player == null || client.world != recordingWorld) {
+            stop(client); // Disconnected or changed dimension mid-recording
+            return;
+        }
+
+        try {
+            pending.x = client.player.getX();
+            pending.z = client.player.getZ();
+            ReplayRecording.writeTick(out, pending);
+        } catch (IOException e) {
+            System.err.println("Failed to write minimap replay: " + e.getMessage());
+            e.printStackTrace();
+            stop(client);
+            return;
+        }
+
+        pending = new ReplayRecording.Tick(client.player.getX(), client.player.getZ());
+    }
+
+    public static void onSnapshotCaptured(ChunkSnapshot snapshot) {
+        if (!isRecording()) return;
+
+        // Chunks of a new world can load before the next tick notices the change
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.world != recordingWorld) {
+            stop(client);
+            return;
+        }
+
+        pending.snapshots.add(snapshot); // Snapshots are immutable, so no copy is needed
+    }
+
+    public static void onSnapshotRemoved(int chunkX, int chunkZ) {
+        if (!isRecording()) return;
+
+        pending.removed.add(MapTile.key(chunkX, chunkZ));
+    }
+}
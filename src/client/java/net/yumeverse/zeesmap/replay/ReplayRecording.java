@@ -0,0 +1,84 @@
+package net.yumeverse.zeesmap.replay;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.yumeverse.zeesmap.render.ChunkSnapshot;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Player path and chunk snapshots captured once per client tick, in the order the map pipeline saw them
+public class ReplayRecording {
+    private static final int MAGIC = 0x5A4D5250; // "ZMRP"
+    private static final int VERSION = 3;
+
+    public int seaLevel;
+    public final List<Tick> ticks = new ArrayList<>();
+
+    public static class Tick {
+        public double x, z;
+
+        // Snapshots captured during the tick, then chunks that unloaded, as MapTile keys
+        public final List<ChunkSnapshot> snapshots = new ArrayList<>();
+        public final LongArrayList removed = new LongArrayList();
+
+        public Tick(double x, double z) {
+            this.x = x;
+            this.z = z;
+        }
+    }
+
+    public static void writeHeader(DataOutputStream out, int seaLevel) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(seaLevel);
+    }
+
+    public static void writeTick(DataOutputStream out, Tick tick) throws IOException {
+        out.writeDouble(tick.x);
+        out.writeDouble(tick.z);
+
+        out.writeInt(tick.snapshots.size());
+        for (ChunkSnapshot snapshot : tick.snapshots) {
+            snapshot.write(out);
+        }
+
+        out.writeInt(tick.removed.size());
+        for (int i = 0; i < tick.removed.size(); i++) {
+            out.writeLong(tick.removed.getLong(i));
+        }
+    }
+
+    public static ReplayRecording read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("Not a minimap replay file");
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported replay version " + version);
+
+        ReplayRecording recording = new ReplayRecording();
+        recording.seaLevel = in.readInt();
+
+        while (true) {
+            try {
+                Tick tick = new Tick(in.readDouble(), in.readDouble());
+
+                int snapshotCount = in.readInt();
+                for (int i = 0; i < snapshotCount; i++) {
+                    tick.snapshots.add(ChunkSnapshot.read(in));
+                }
+
+                int removedCount = in.readInt();
+                for (int i = 0; i < removedCount; i++) {
+                    tick.removed.add(in.readLong());
+                }
+
+                recording.ticks.add(tick);
+            } catch (EOFException e) {
+                // Recordings end after the last complete tick; a game crash can also cut one
+                // short, in which case the partial tick is dropped
+                break;
+            }
+        }
+
+        return recording;
+    }
+}
@@ -0,0 +1,155 @@
+package net.yumeverse.zeesmap.replay;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Block;
+import net.minecraft.block.Blocks;
+import net.yumeverse.zeesmap.render.ChunkSnapshot;
+import net.yumeverse.zeesmap.render.MapTile;
+
+import java.util.Random;
+
+// Built-in synthetic scenarios so perf changes are always compared against the same inputs.
+// Terrain and paths come from fixed seeds; chunks are delivered like a server would, as the
+// player comes within view distance, and unloaded again once they fall behind.
+public class ReplayScenarios {
+    public static final String[] NAMES = {"elytra", "nether-roof", "ocean", "forest"};
+
+    private static final int VIEW_DISTANCE = 8; // chunks sent around the player
+    private static final int TICKS = 1200; // one minute of play
+
+    private interface Terrain {
+        // Writes the top block and height of one column into the chunk arrays
+        void column(int worldX, int worldZ, int index, Block[] columns, short[] heights);
+    }
+
+    private interface Climate {
+        float temperature(int worldX, int worldZ);
+    }
+
+    public static ReplayRecording create(String name) {
+        return switch (name) {
+            // Fast, gently curving flight over hills, coast and sea
+            case "elytra" -> record(63, 1.8, 0.004, ReplayScenarios::hills, (x, z) -> 0.8f);
+            // Slow walk across the flat bedrock roof, which is mostly cache hits
+            case "nether-roof" -> record(32, 0.28, 0.02, ReplayScenarios::netherRoof, (x, z) -> 2.0f);
+            // Boat travel across open water with the odd island
+            case "ocean" -> record(63, 0.4, 0.001, ReplayScenarios::ocean, (x, z) -> 0.5f);
+            // Walk through a dense canopy of every leaf type across cold, temperate and hot biomes
+            case "forest" -> record(63, 0.28, 0.01, ReplayScenarios::forest,
+                    (x, z) -> (float) (noise(Math.floorDiv(x, 64), Math.floorDiv(z, 64)) * 1.2));
+            default -> throw new IllegalArgumentException("Unknown scenario: " + name);
+        };
+    }
+
+    private static ReplayRecording record(int seaLevel, double speed, double turnRate, Terrain terrain, Climate climate) {
+        ReplayRecording recording = new ReplayRecording();
+        recording.seaLevel = seaLevel;
+
+        Random random = new Random(0x5EEDL);
+        LongOpenHashSet loaded = new LongOpenHashSet();
+        long version = 0;
+        double x = 0, z = 0;
+        double heading = 0;
+
+        for (int i = 0; i < TICKS; i++) {
+            heading += turnRate * (random.nextDouble() * 2 - 1) * 20;
+            x += Math.cos(heading) * speed;
+            z += Math.sin(heading) * speed;
+
+            ReplayRecording.Tick tick = new ReplayRecording.Tick(x, z);
+            int playerChunkX = ((int) Math.floor(x)) >> 4;
+            int playerChunkZ = ((int) Math.floor(z)) >> 4;
+
+            for (int cx = playerChunkX - VIEW_DISTANCE; cx <= playerChunkX + VIEW_DISTANCE; cx++) {
+                for (int cz = playerChunkZ - VIEW_DISTANCE; cz <= playerChunkZ + VIEW_DISTANCE; cz++) {
+                    if (loaded.add(MapTile.key(cx, cz))) {
+                        tick.snapshots.add(generateChunk(cx, cz, version++, terrain, climate));
+                    }
+                }
+            }
+
+            // Like the vanilla client, keep one extra ring before unloading
+            for (LongIterator it = loaded.iterator(); it.hasNext(); ) {
+                long key = it.nextLong();
+                if (Math.abs((int) key - playerChunkX) > VIEW_DISTANCE + 1
+                        || Math.abs((int) (key >> 32) - playerChunkZ) > VIEW_DISTANCE + 1) {
+                    it.remove();
+                    tick.removed.add(key);
+                }
+            }
+
+            recording.ticks.add(tick);
+        }
+
+        return recording;
+    }
+
+    private static ChunkSnapshot generateChunk(int chunkX, int chunkZ, long version, Terrain terrain, Climate climate) {
+        Block[] columns = new Block[MapTile.AREA];
+        short[] heights = new short[MapTile.AREA];
+        float[] temperatures = new float[16];
+
+        for (int z = 0; z < MapTile.SIZE; z++) {
+            for (int x = 0; x < MapTile.SIZE; x++) {
+                terrain.column((chunkX << 4) + x, (chunkZ << 4) + z, MapTile.index(x, z), columns, heights);
+            }
+        }
+        for (int cell = 0; cell < temperatures.length; cell++) {
+            temperatures[cell] = climate.temperature((chunkX << 4) + (cell & 3) * 4, (chunkZ << 4) + (cell >> 2) * 4);
+        }
+
+        return ChunkSnapshot.fromColumns(chunkX, chunkZ, version, columns, heights, temperatures);
+    }
+
+    private static void hills(int x, int z, int i, Block[] columns, short[] heights) {
+        double h = 66 + 18 * Math.sin(x * 0.021) * Math.cos(z * 0.017) + 6 * Math.sin((x + z) * 0.05) + noise(x, z) * 2;
+        if (h < 62) {
+            columns[i] = Blocks.WATER;
+            heights[i] = 62;
+        } else {
+            columns[i] = h < 64 ? Blocks.SAND : h > 88 ? Blocks.STONE : Blocks.GRASS_BLOCK;
+            heights[i] = (short) h;
+        }
+    }
+
+    private static void netherRoof(int x, int z, int i, Block[] columns, short[] heights) {
+        columns[i] = Blocks.BEDROCK;
+        heights[i] = (short) (noise(x, z) > 0.9 ? 126 : 127);
+    }
+
+    private static void ocean(int x, int z, int i, Block[] columns, short[] heights) {
+        double island = Math.sin(x * 0.013) * Math.sin(z * 0.011);
+        if (island > 0.92) {
+            columns[i] = Blocks.SAND;
+            heights[i] = (short) (62 + (island - 0.92) * 80);
+        } else {
+            columns[i] = Blocks.WATER;
+            heights[i] = 62;
+        }
+    }
+
+    // Cherry and azalea leaves aren't in the builder's fixed list, so they take the same
+    // name-matching path as modded leaves
+    private static final Block[] LEAVES = {
+            Blocks.OAK_LEAVES, Blocks.BIRCH_LEAVES, Blocks.SPRUCE_LEAVES, Blocks.JUNGLE_LEAVES, Blocks.DARK_OAK_LEAVES,
+            Blocks.MANGROVE_LEAVES, Blocks.CHERRY_LEAVES, Blocks.AZALEA_LEAVES, Blocks.FLOWERING_AZALEA_LEAVES};
+
+    private static void forest(int x, int z, int i, Block[] columns, short[] heights) {
+        // Crowns every few blocks, each with its own leaf type and height
+        int crownX = Math.floorDiv(x, 5);
+        int crownZ = Math.floorDiv(z, 5);
+        double crown = noise(crownX, crownZ);
+        columns[i] = LEAVES[(int) (crown * LEAVES.length)];
+        heights[i] = (short) (72 + crown * 14 + noise(x, z) * 2);
+    }
+
+    // Deterministic value noise in [0, 1)
+    private static double noise(int x, int z) {
+        long h = x * 0x9E3779B97F4A7C15L + z * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 31;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 29;
+        return (h >>> 11) / (double) (1L << 53);
+    }
+}
@@ -0,0 +1,69 @@
+package net.yumeverse.zeesmap.storage;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Spatial hash over waypoints so the minimap and imports only look at nearby entries
+public class WaypointIndex {
+    private static final int CELL_SHIFT = 6; // 64-block cells
+
+    private final Long2ObjectOpenHashMap<List<WaypointStorage.Waypoint>> cells = new Long2ObjectOpenHashMap<>();
+
+    private static long key(int cellX, int cellZ) {
+        return (cellX & 0xFFFFFFFFL) | (cellZ & 0xFFFFFFFFL) << 32;
+    }
+
+    private static int cell(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> CELL_SHIFT;
+    }
+
+    public void add(WaypointStorage.Waypoint waypoint) {
+        cells.computeIfAbsent(key(cell(waypoint.x), cell(waypoint.z)), k -> new ArrayList<>()).add(waypoint);
+    }
+
+    public void remove(WaypointStorage.Waypoint waypoint) {
+        long key = key(cell(waypoint.x), cell(waypoint.z));
+        List<WaypointStorage.Waypoint> bucket = cells.get(key);
+        if (bucket == null) return;
+
+        bucket.remove(waypoint);
+        if (bucket.isEmpty()) {
+            cells.remove(key);
+        }
+    }
+
+    public void clear() {
+        cells.clear();
+    }
+
+    // A waypoint with the same name on the same block counts as a duplicate
+    public boolean containsDuplicate(WaypointStorage.Waypoint waypoint) {
+        List<WaypointStorage.Waypoint> bucket = cells.get(key(cell(waypoint.x), cell(waypoint.z)));
+        if (bucket == null) return false;
+
+        for (WaypointStorage.Waypoint other : bucket) {
+            if (Math.floor(other.x) == Math.floor(waypoint.x)
+                    && Math.floor(other.y) == Math.floor(waypoint.y)
+                    && Math.floor(other.z) == Math.floor(waypoint.z)
+                    && other.name.equalsIgnoreCase(waypoint.name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Visits every waypoint whose cell overlaps the given block area
+    public void forEachInArea(double minX, double minZ, double maxX, double maxZ, Consumer<WaypointStorage.Waypoint> consumer) {
+        for (int cellX = cell(minX); cellX <= cell(maxX); cellX++) {
+            for (int cellZ = cell(minZ); cellZ <= cell(maxZ); cellZ++) {
+                List<WaypointStorage.Waypoint> bucket = cells.get(key(cellX, cellZ));
+                if (bucket != null) {
+                    bucket.forEach(consumer);
+                }
+            }
+        }
+    }
+}
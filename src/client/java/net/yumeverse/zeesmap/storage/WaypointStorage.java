@@ -1,18 +1,27 @@
 package net.yumeverse.zeesmap.storage;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import net.fabricmc.loader.api.FabricLoader;
-import net.minecraft.client.MinecraftClient;
 
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class WaypointStorage {
     public static List<Waypoint> waypoints = new ArrayList<>();
+    public static final WaypointIndex index = new WaypointIndex();
     private static Path path;
-    private static final Gson gson = new Gson();
+
+    // Single writer thread so saves land on disk in the order they were requested
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Zee's Map waypoint writer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     // Initialize path when first accessed
     private static Path getPath() {
@@ -25,35 +34,128 @@ public class WaypointStorage {
     }
 
     public static void load() {
+        Path configPath = getPath();
         try {
-            Path configPath = getPath();
             if (Files.exists(configPath)) {
+                List<Waypoint> loaded = new ArrayList<>();
                 try (Reader r = Files.newBufferedReader(configPath)) {
-                    List<Waypoint> loaded = gson.fromJson(r, new TypeToken<List<Waypoint>>(){}.getType());
-                    if (loaded != null) {
-                        waypoints = loaded;
-                    }
+                    readStored(r, loaded);
                 }
+
+                waypoints = loaded;
+                index.clear();
+                loaded.forEach(index::add);
             }
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
             System.err.println("Failed to load waypoints: " + e.getMessage());
             e.printStackTrace();
+
+            // Keep the unreadable file, since the next save replaces it with an empty list
+            try {
+                Files.copy(configPath, configPath.resolveSibling("zeesmap_waypoints.json.broken"), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException copyError) {
+                System.err.println("Failed to back up waypoints: " + copyError.getMessage());
+            }
+        }
+    }
+
+    // Streams our own file record by record rather than materialising the whole JSON tree.
+    // Every record is kept, with missing fields defaulted the way Gson used to read them.
+    private static void readStored(Reader reader, List<Waypoint> loaded) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        try {
+            json.peek();
+        } catch (EOFException e) {
+            return; // Empty file
+        }
+
+        json.beginArray();
+        while (json.hasNext()) {
+            Waypoint waypoint = new Waypoint("Waypoint", 0, 0, 0);
+            List<String> missing = new ArrayList<>(List.of("name", "x", "y", "z"));
+
+            json.beginObject();
+            while (json.hasNext()) {
+                String key = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                    continue;
+                }
+
+                switch (key) {
+                    case "name" -> waypoint.name = json.nextString();
+                    case "x" -> waypoint.x = json.nextDouble();
+                    case "y" -> waypoint.y = json.nextDouble();
+                    case "z" -> waypoint.z = json.nextDouble();
+                    default -> {
+                        json.skipValue();
+                        continue;
+                    }
+                }
+                missing.remove(key);
+            }
+            json.endObject();
+
+            if (!missing.isEmpty()) {
+                System.err.println("Waypoint " + loaded.size() + " is missing " + missing + ", loaded with defaults");
+            }
+            loaded.add(waypoint);
         }
+        json.endArray();
     }
 
     public static void save() {
+        saveAsync().join();
+    }
+
+    // Writes a copy of the list on the writer thread so large sets don't stall the client thread
+    public static CompletableFuture<Void> saveAsync() {
+        List<Waypoint> copy = new ArrayList<>(waypoints);
+        return CompletableFuture.runAsync(() -> write(copy), WRITER);
+    }
+
+    // Waits for queued saves; the writer is a daemon thread, so the JVM won't wait for it on exit
+    public static void flush() {
+        CompletableFuture.runAsync(() -> {}, WRITER).join();
+    }
+
+    // Written next to the file and moved over it, so a save cut short never truncates the waypoints
+    private static void write(List<Waypoint> list) {
         try {
             Path configPath = getPath();
             Files.createDirectories(configPath.getParent());
-            try (Writer w = Files.newBufferedWriter(configPath)) {
-                gson.toJson(waypoints, w);
+            Path temp = configPath.resolveSibling("zeesmap_waypoints.json.tmp");
+            try (Writer w = Files.newBufferedWriter(temp)) {
+                WaypointTransfer.writeJson(list, w);
             }
+            Files.move(temp, configPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
             System.err.println("Failed to save waypoints: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
+    public static void add(Waypoint waypoint) {
+        waypoints.add(waypoint);
+        index.add(waypoint);
+    }
+
+    public static void remove(int i) {
+        index.remove(waypoints.remove(i));
+    }
+
+    // Adds the waypoints that aren't already present; returns how many were added
+    public static int addAllNew(List<Waypoint> batch) {
+        int added = 0;
+        for (Waypoint waypoint : batch) {
+            if (!index.containsDuplicate(waypoint)) {
+                add(waypoint);
+                added++;
+            }
+        }
+        return added;
+    }
+
     public static class Waypoint {
         public String name;
         public double x, y, z;
@@ -64,8 +166,5 @@ public class WaypointStorage {
             this.y = y;
             this.z = z;
         }
-
-        // Default constructor for Gson
-        public Waypoint() {}
     }
-}
\ No newline at end of file
+}
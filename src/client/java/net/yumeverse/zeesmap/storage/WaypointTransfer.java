@@ -0,0 +1,379 @@
+package net.yumeverse.zeesmap.storage;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.Util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Streaming import/export of waypoints. Files are read record by record off the client thread
+// and handed over in batches, so large sets neither spike the heap nor stall rendering.
+//
+// Supported imports, chosen by extension and searched for in subfolders too:
+//   .json   - our own format (array of {name, x, y, z}) or a single JourneyMap waypoint object
+//   .csv    - name,x,y,z with an optional header row
+//   .txt    - Xaero's Minimap waypoint files ("waypoint:name:initials:x:y:z:...")
+//   .points - VoxelMap waypoint files ("name:Home,x:1,z:2,y:64,...")
+//
+// Our waypoints have no dimension and are always shown in the Overworld, so waypoints that other
+// mods place in the Nether, the End or modded dimensions are counted and left out. JourneyMap and
+// VoxelMap list the dimensions per waypoint; Xaero keeps one folder per dimension ("dim%0" is the
+// Overworld), so its files should be imported with their folders.
+public class WaypointTransfer {
+    private static final int BATCH_SIZE = 1000;
+    private static final double DEFAULT_Y = 64; // Used when a format leaves the height out
+
+    public static class ImportResult {
+        public int files, failed, added, duplicates, skipped, otherDimension;
+    }
+
+    public static Path getImportDir() throws IOException {
+        return Files.createDirectories(FabricLoader.getInstance().getConfigDir().resolve("zeesmap_import"));
+    }
+
+    public static Path getExportDir() throws IOException {
+        return Files.createDirectories(FabricLoader.getInstance().getConfigDir().resolve("zeesmap_export"));
+    }
+
+    // Imports every supported file in the import directory. Must be called on the client thread;
+    // the future completes there once all batches have been merged and a save is queued.
+    public static CompletableFuture<ImportResult> importAll() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        CompletableFuture<ImportResult> future = new CompletableFuture<>();
+
+        Util.getIoWorkerExecutor().execute(() -> {
+            ImportResult result = new ImportResult();
+            List<WaypointStorage.Waypoint> batch = new ArrayList<>(BATCH_SIZE);
+
+            try {
+                Path importDir = getImportDir();
+                List<Path> files;
+                try (Stream<Path> walk = Files.walk(importDir)) {
+                    files = walk.filter(Files::isRegularFile).sorted().toList();
+                }
+
+                for (Path file : files) {
+                    // A broken file only loses its own remaining records
+                    try {
+                        boolean supported = read(file, importDir.relativize(file), waypoint -> {
+                            batch.add(waypoint);
+                            if (batch.size() >= BATCH_SIZE) {
+                                List<WaypointStorage.Waypoint> full = new ArrayList<>(batch);
+                                batch.clear();
+                                client.execute(() -> merge(full, result));
+                            }
+                        }, result);
+
+                        if (supported) {
+                            result.files++;
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Failed to import waypoints from " + file + ": " + e.getMessage());
+                        e.printStackTrace();
+                        result.failed++;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Failed to import waypoints: " + e.getMessage());
+                e.printStackTrace();
+            }
+
+            // Runs after every batch queued above since the client executes tasks in order
+            List<WaypointStorage.Waypoint> last = new ArrayList<>(batch);
+            client.execute(() -> {
+                merge(last, result);
+                if (result.added > 0) {
+                    WaypointStorage.saveAsync();
+                }
+                future.complete(result);
+            });
+        });
+
+        return future;
+    }
+
+    private static void merge(List<WaypointStorage.Waypoint> batch, ImportResult result) {
+        int added = WaypointStorage.addAllNew(batch);
+        result.added += added;
+        result.duplicates += batch.size() - added;
+    }
+
+    // Writes the current waypoints as JSON and CSV. Must be called on the client thread.
+    public static CompletableFuture<Path> exportAll() {
+        List<WaypointStorage.Waypoint> copy = new ArrayList<>(WaypointStorage.waypoints);
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Path dir = getExportDir();
+                try (Writer w = Files.newBufferedWriter(dir.resolve("zeesmap_waypoints.json"))) {
+                    writeJson(copy, w);
+                }
+                try (Writer w = Files.newBufferedWriter(dir.resolve("zeesmap_waypoints.csv"))) {
+                    writeCsv(copy, w);
+                }
+                return dir;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, Util.getIoWorkerExecutor());
+    }
+
+    // Reads one file in whichever format its extension names; returns false for unsupported files.
+    // The path relative to the import folder tells which dimension Xaero's files belong to.
+    public static boolean read(Path file, Path relativePath, Consumer<WaypointStorage.Waypoint> consumer, ImportResult result) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            if (name.endsWith(".json")) {
+                readJson(reader, consumer, result);
+            } else if (name.endsWith(".csv")) {
+                readCsv(reader, consumer, result);
+            } else if (name.endsWith(".txt")) {
+                if (isXaeroOverworld(relativePath)) {
+                    readXaero(reader, consumer, result);
+                } else {
+                    readXaero(reader, waypoint -> result.otherDimension++, result);
+                }
+            } else if (name.endsWith(".points")) {
+                readVoxelMap(reader, consumer, result);
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Records without coordinates are counted in result.skipped, other dimensions in result.otherDimension
+    public static void readJson(Reader reader, Consumer<WaypointStorage.Waypoint> consumer, ImportResult result) throws IOException {
+        JsonReader json = new JsonReader(reader);
+
+        if (json.peek() == JsonToken.BEGIN_ARRAY) {
+            json.beginArray();
+            while (json.hasNext()) {
+                readJsonRecord(json, consumer, result);
+            }
+            json.endArray();
+        } else {
+            // JourneyMap keeps one waypoint object per file
+            readJsonRecord(json, consumer, result);
+        }
+    }
+
+    private static void readJsonRecord(JsonReader json, Consumer<WaypointStorage.Waypoint> consumer, ImportResult result) throws IOException {
+        String name = null;
+        double x = Double.NaN, y = DEFAULT_Y, z = Double.NaN;
+        boolean overworld = true;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String key = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+
+            switch (key) {
+                case "name" -> name = json.nextString();
+                case "x" -> x = json.nextDouble();
+                case "y" -> y = json.nextDouble();
+                case "z" -> z = json.nextDouble();
+                case "dimensions" -> overworld = readJourneyMapDimensions(json);
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+
+        emit(name, x, y, z, overworld, consumer, result);
+    }
+
+    // JourneyMap lists every dimension a waypoint shows in, by id in newer versions and by number in older ones
+    private static boolean readJourneyMapDimensions(JsonReader json) throws IOException {
+        if (json.peek() != JsonToken.BEGIN_ARRAY) {
+            json.skipValue();
+            return true;
+        }
+
+        boolean overworld = false;
+        boolean any = false;
+        json.beginArray();
+        while (json.hasNext()) {
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            any = true;
+            overworld |= isOverworld(json.nextString());
+        }
+        json.endArray();
+
+        return overworld || !any;
+    }
+
+    public static void writeJson(Iterable<WaypointStorage.Waypoint> waypoints, Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginArray();
+        for (WaypointStorage.Waypoint waypoint : waypoints) {
+            json.beginObject();
+            json.name("name").value(waypoint.name);
+            json.name("x").value(waypoint.x);
+            json.name("y").value(waypoint.y);
+            json.name("z").value(waypoint.z);
+            json.endObject();
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    public static void readCsv(BufferedReader reader, Consumer<WaypointStorage.Waypoint> consumer, ImportResult result) throws IOException {
+        boolean first = true;
+
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isBlank()) continue;
+
+            List<String> fields = splitCsv(line);
+            if (first) {
+                first = false;
+                if (fields.get(0).trim().equalsIgnoreCase("name")) continue; // Header row
+            }
+
+            if (fields.size() < 4) {
+                result.skipped++;
+                continue;
+            }
+            emit(fields.get(0), parse(fields.get(1)), parse(fields.get(2)), parse(fields.get(3)), true, consumer, result);
+        }
+    }
+
+    public static void writeCsv(Iterable<WaypointStorage.Waypoint> waypoints, Writer writer) throws IOException {
+        writer.write("name,x,y,z\n");
+        for (WaypointStorage.Waypoint waypoint : waypoints) {
+            writer.write('"' + waypoint.name.replace("\"", "\"\"") + '"');
+            writer.write("," + waypoint.x + "," + waypoint.y + "," + waypoint.z + "\n");
+        }
+        writer.flush();
+    }
+
+    // Splits one CSV line, honouring double-quoted fields with "" escapes
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+
+        return fields;
+    }
+
+    // waypoint:name:initials:x:y:z:color:disabled:type:set:rotate_on_tp:tp_yaw:visibility_type:destination
+    public static void readXaero(BufferedReader reader, Consumer<WaypointStorage.Waypoint> consumer, ImportResult result) throws IOException {
+
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (!line.startsWith("waypoint:")) continue; // Comments and set definitions
+
+            String[] fields = line.split(":");
+            if (fields.length < 6) {
+                result.skipped++;
+                continue;
+            }
+
+            // Xaero escapes colons in names as two section signs and writes ~ for an unknown height
+            String name = fields[1].replace("\u00a7\u00a7", ":");
+            double y = fields[4].equals("~") ? DEFAULT_Y : parse(fields[4]);
+            emit(name, parse(fields[3]), y, parse(fields[5]), true, consumer, result);
+        }
+    }
+
+    // Files outside any "dim%..." folder are taken to be from the Overworld
+    private static boolean isXaeroOverworld(Path relativePath) {
+        for (Path part : relativePath) {
+            String folder = part.toString();
+            if (folder.startsWith("dim%") && !folder.equals("dim%0")) return false;
+        }
+        return true;
+    }
+
+    // name:Home,x:100,z:200,y:64,enabled:true,red:0.5,green:0.5,blue:0.5,suffix:,world:,dimensions:overworld#
+    public static void readVoxelMap(BufferedReader reader, Consumer<WaypointStorage.Waypoint> consumer, ImportResult result) throws IOException {
+
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (!line.startsWith("name:")) continue; // Headers such as "subworlds:" or "seeds:"
+
+            String name = null;
+            double x = Double.NaN, y = DEFAULT_Y, z = Double.NaN;
+            boolean overworld = true;
+
+            for (String pair : line.split(",")) {
+                int colon = pair.indexOf(':');
+                if (colon < 0) continue;
+
+                String value = pair.substring(colon + 1);
+                switch (pair.substring(0, colon)) {
+                    case "name" -> name = value.replace("~comma~", ",").replace("~colon~", ":");
+                    case "x" -> x = parse(value);
+                    case "y" -> y = parse(value);
+                    case "z" -> z = parse(value);
+                    // Dimensions are separated by '#'; an empty list means the waypoint predates them
+                    case "dimensions" -> overworld = value.isEmpty() || Arrays.stream(value.split("#")).anyMatch(WaypointTransfer::isOverworld);
+                    default -> {}
+                }
+            }
+
+            emit(name, x, y, z, overworld, consumer, result);
+        }
+    }
+
+    private static boolean isOverworld(String dimension) {
+        return dimension.equals("0") || dimension.equals("overworld") || dimension.endsWith(":overworld");
+    }
+
+    private static double parse(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static void emit(String name, double x, double y, double z, boolean overworld,
+                             Consumer<WaypointStorage.Waypoint> consumer, ImportResult result) {
+        if (Double.isNaN(x) || Double.isNaN(y) || Double.isNaN(z)) {
+            result.skipped++;
+            return;
+        }
+        if (!overworld) {
+            result.otherDimension++;
+            return;
+        }
+
+        if (name == null || name.isBlank()) name = "Waypoint";
+        consumer.accept(new WaypointStorage.Waypoint(name.trim(), x, y, z));
+    }
+}